@@ -0,0 +1,313 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.Extension;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+import org.junit.jupiter.api.extension.TestInstanceFactory;
+import org.junit.jupiter.api.extension.TestInstanceFactoryContext;
+import org.junit.jupiter.api.extension.TestInstantiationException;
+import org.junit.jupiter.api.extension.TestTemplateInvocationContext;
+import org.junit.jupiter.api.extension.TestTemplateInvocationContextProvider;
+import org.mockito.Mockito;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.internal.Annotations;
+
+/**
+ * The JUnit Jupiter counterpart of the {@link JukitoRunner}. The test class is instantiated by
+ * Guice, using the same {@link TestModule} as the runner: the modules of {@link UseModules}, an
+ * inner static class deriving from {@link TestModule}, or an empty {@link JukitoModule}. The
+ * parameters of the test methods, and of the methods annotated with
+ * {@literal @}{@link org.junit.jupiter.api.BeforeEach BeforeEach} or
+ * {@literal @}{@link org.junit.jupiter.api.AfterEach AfterEach}, are injected.
+ * <p/>
+ * Test methods with parameters annotated with {@literal @}{@link All} must be annotated with
+ * {@literal @}{@link org.junit.jupiter.api.TestTemplate TestTemplate}, they are invoked once per
+ * combination of bindings.
+ * <p/>
+ * Example:
+ * <pre>
+ * {@literal @}ExtendWith(JukitoExtension.class)
+ * {@literal @}UseModules(FooModule.class)
+ * class MyTest {
+ *   {@literal @}Test
+ *   void someTest(TypeBoundInFooModule a, MockedType b) {
+ *   }
+ *
+ *   {@literal @}TestTemplate
+ *   void someTemplate({@literal @}All Data data) {
+ *   }
+ * }</pre>
+ *
+ * Injectors are kept in the root {@link ExtensionContext.Store}, so test classes with the
+ * same modules and needing the same keys share their injector. Every test instance gets its
+ * own {@link TestScope} context, so tests can run in parallel. The context is also bound to the
+ * thread invoking the test methods, which differs from the thread running the callbacks with a
+ * {@link org.junit.jupiter.api.Timeout Timeout} in a separate thread. With the
+ * {@link TestInstance.Lifecycle#PER_CLASS PER_CLASS} lifecycle, the test-scoped singletons
+ * are shared by all the tests of the class. {@literal @}{@link org.junit.jupiter.api.Nested Nested}
+ * test classes are not supported.
+ * <p/>
+ * Depends on Mockito.
+ */
+public class JukitoExtension implements TestInstanceFactory, BeforeEachCallback, AfterEachCallback,
+        AfterAllCallback, ParameterResolver, TestTemplateInvocationContextProvider, InvocationInterceptor {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(
+            JukitoExtension.class);
+    private static final String PREVIOUS_CONTEXT = "previousContext";
+
+    /**
+     * The parameters annotated with {@literal @}{@link All} of an invocation of a test template.
+     */
+    private static class AllParameterResolver implements ParameterResolver {
+        private final InjectedFrameworkMethod method;
+
+        AllParameterResolver(InjectedFrameworkMethod method) {
+            this.method = method;
+        }
+
+        @Override
+        public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+            return parameterContext.isAnnotated(All.class);
+        }
+
+        @Override
+        public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+            Parameter[] parameters = parameterContext.getDeclaringExecutable().getParameters();
+            int bindingIndex = 0;
+            for (int i = 0; i < parameterContext.getIndex(); i++) {
+                if (parameters[i].isAnnotationPresent(All.class)) {
+                    bindingIndex++;
+                }
+            }
+            try {
+                InjectionPlan plan = getInjection(extensionContext).getPlan(method.getMethod());
+                return plan.getInstance(method.getBindingsToUseForParameters().get(bindingIndex));
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new ParameterResolutionException("Unable to inject " + parameterContext.getParameter(), e);
+            }
+        }
+    }
+
+    @Override
+    public Object createTestInstance(TestInstanceFactoryContext factoryContext,
+            ExtensionContext extensionContext) {
+        if (factoryContext.getOuterInstance().isPresent()) {
+            throw new TestInstantiationException("Jukito does not support @Nested test classes: "
+                    + factoryContext.getTestClass().getName());
+        }
+        return getInjection(extensionContext, factoryContext.getTestClass()).createTestInstance();
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        TestScope.Context previous = getInjection(context).enterContext(context.getRequiredTestInstance());
+        context.getStore(NAMESPACE).put(PREVIOUS_CONTEXT, previous);
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        try {
+            Mockito.validateMockitoUsage();
+        } finally {
+            TestScope.exitContext(context.getStore(NAMESPACE).remove(PREVIOUS_CONTEXT, TestScope.Context.class));
+            if (isPerMethod(context)) {
+                getInjection(context).removeTestInstance(context.getRequiredTestInstance());
+            }
+        }
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        if (!isPerMethod(context) && context.getTestInstance().isPresent()) {
+            getInjection(context).removeTestInstance(context.getTestInstance().get());
+        }
+    }
+
+    @Override
+    public void interceptBeforeEachMethod(Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable {
+        proceedInContext(invocation, extensionContext);
+    }
+
+    @Override
+    public void interceptTestMethod(Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable {
+        proceedInContext(invocation, extensionContext);
+    }
+
+    @Override
+    public void interceptTestTemplateMethod(Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable {
+        proceedInContext(invocation, extensionContext);
+    }
+
+    @Override
+    public void interceptAfterEachMethod(Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> invocationContext, ExtensionContext extensionContext) throws Throwable {
+        proceedInContext(invocation, extensionContext);
+    }
+
+    /**
+     * Invokes a method of the test instance with its {@link TestScope} context bound to the current
+     * thread, which is not the thread of {@link #beforeEach} when the method has a timeout.
+     */
+    private static void proceedInContext(Invocation<Void> invocation, ExtensionContext context) throws Throwable {
+        TestScope.Context previous = getInjection(context).enterContext(context.getRequiredTestInstance());
+        try {
+            invocation.proceed();
+        } finally {
+            TestScope.exitContext(previous);
+        }
+    }
+
+    /**
+     * Injects the parameters of the test methods that Jukito can provide: the bound keys, including
+     * the interfaces mocked automatically, and the classes Guice binds just-in-time. The parameters
+     * annotated with {@literal @}{@link All}, those resolved by JUnit Jupiter itself, like
+     * {@link org.junit.jupiter.api.TestInfo TestInfo}, and those with an annotation meant for another
+     * extension, like Mockito's {@literal @}{@link org.mockito.Mock Mock}, are left to the other
+     * parameter resolvers.
+     */
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        if (!(parameterContext.getDeclaringExecutable() instanceof Method)
+                || parameterContext.isAnnotated(All.class)) {
+            return false;
+        }
+        Parameter parameter = parameterContext.getParameter();
+        if (isJupiterType(parameter.getType())) {
+            return false;
+        }
+        for (Annotation annotation : parameter.getAnnotations()) {
+            if (!Annotations.isBindingAnnotation(annotation.annotationType())) {
+                return false;
+            }
+        }
+        return getInjection(extensionContext).canInject((Method) parameterContext.getDeclaringExecutable(),
+                parameterContext.getIndex());
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        Method method = (Method) parameterContext.getDeclaringExecutable();
+        try {
+            return getInjection(extensionContext).getPlan(method).getParameter(parameterContext.getIndex());
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new ParameterResolutionException("Unable to inject " + parameterContext.getParameter(), e);
+        }
+    }
+
+    @Override
+    public boolean supportsTestTemplate(ExtensionContext context) {
+        for (Parameter parameter : context.getRequiredTestMethod().getParameters()) {
+            if (parameter.isAnnotationPresent(All.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Stream<TestTemplateInvocationContext> provideTestTemplateInvocationContexts(ExtensionContext context) {
+        // The combinations are created one at a time, as Jupiter consumes the stream
+        List<InjectedFrameworkMethod> methods = getInjection(context).expand(context.getRequiredTestMethod());
+        return methods.stream().map(new Function<InjectedFrameworkMethod, TestTemplateInvocationContext>() {
+            @Override
+            public TestTemplateInvocationContext apply(final InjectedFrameworkMethod method) {
+                return new TestTemplateInvocationContext() {
+                    @Override
+                    public List<Extension> getAdditionalExtensions() {
+                        return Collections.<Extension>singletonList(new AllParameterResolver(method));
+                    }
+                };
+            }
+        });
+    }
+
+    private static boolean isPerMethod(ExtensionContext context) {
+        return context.getTestInstanceLifecycle().orElse(TestInstance.Lifecycle.PER_METHOD)
+                == TestInstance.Lifecycle.PER_METHOD;
+    }
+
+    private static boolean isJupiterType(Class<?> type) {
+        return type.getName().startsWith("org.junit.jupiter.");
+    }
+
+    private static TestClassInjection getInjection(ExtensionContext context) {
+        return getInjection(context, context.getRequiredTestClass());
+    }
+
+    /**
+     * Gets the injection state of a test class from the root store, creating it the first time.
+     * The injector is shared with the other test classes with the same fingerprint.
+     */
+    private static TestClassInjection getInjection(ExtensionContext context, Class<?> testClass) {
+        final ExtensionContext.Store store = context.getRoot().getStore(NAMESPACE);
+        return store.getOrComputeIfAbsent(testClass, new Function<Class<?>, TestClassInjection>() {
+            @Override
+            public TestClassInjection apply(Class<?> testClass) {
+                return new TestClassInjection(testClass, getInjector(store, testClass));
+            }
+        }, TestClassInjection.class);
+    }
+
+    private static Injector getInjector(ExtensionContext.Store store, Class<?> testClass) {
+        final TestModule testModule;
+        try {
+            testModule = TestModules.getTestModule(testClass);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new ExtensionConfigurationException("Unable to create the test module of "
+                    + testClass.getName(), e);
+        }
+        testModule.setTestClass(testClass);
+
+        InjectorCache.Fingerprint fingerprint = new InjectorCache.Fingerprint(JukitoExtension.class, testModule,
+                TestModules.getUseModuleClasses(testClass), testClass);
+        return store.getOrComputeIfAbsent(fingerprint, new Function<InjectorCache.Fingerprint, Injector>() {
+            @Override
+            public Injector apply(InjectorCache.Fingerprint fingerprint) {
+                TestModules.observeBindings(testModule);
+                Injector injector = Guice.createInjector(testModule);
+                TestModules.prepareMocks(injector);
+                TestModules.printReport(testModule);
+                return injector;
+            }
+        }, Injector.class);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.ConfigurationException;
+import com.google.inject.ImplementedBy;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.ProvidedBy;
+import com.google.inject.Provider;
+import com.google.inject.internal.Errors;
+import com.google.inject.spi.InjectionPoint;
+
+/**
+ * The injection state of a test class running with the {@link JukitoExtension}. The injector
+ * can be shared with other test classes, while every test instance gets its own
+ * {@link TestScope} context.
+ */
+class TestClassInjection {
+
+    private final Class<?> testClass;
+    private final Injector injector;
+    private final MethodInjectors methodInjectors;
+    private final Provider<?>[] eagerTestSingletons;
+    private final AllBindingsIndex allBindings;
+    private final Map<Object, TestScope.Context> contexts =
+            Collections.synchronizedMap(new IdentityHashMap<Object, TestScope.Context>());
+
+    TestClassInjection(Class<?> testClass, Injector injector) {
+        this.testClass = testClass;
+        this.injector = injector;
+        methodInjectors = new MethodInjectors(injector);
+        eagerTestSingletons = TestModules.findEagerTestSingletons(injector);
+        allBindings = new AllBindingsIndex(injector);
+    }
+
+    /**
+     * Creates a test instance in a new {@link TestScope} context, after instantiating the
+     * eager test singletons.
+     *
+     * @return The test instance.
+     */
+    Object createTestInstance() {
+        TestScope.Context context = new TestScope.Context();
+        TestScope.Context previous = TestScope.enterContext(context);
+        try {
+            for (Provider<?> provider : eagerTestSingletons) {
+                provider.get();
+            }
+            Object testInstance = injector.getInstance(testClass);
+            contexts.put(testInstance, context);
+            return testInstance;
+        } finally {
+            TestScope.exitContext(previous);
+        }
+    }
+
+    /**
+     * Binds the {@link TestScope} context of a test instance to the current thread.
+     *
+     * @param testInstance The test instance.
+     * @return The context that was bound to the current thread.
+     */
+    TestScope.Context enterContext(Object testInstance) {
+        TestScope.Context context = contexts.get(testInstance);
+        if (context == null) {
+            // The test instance was not created by Jukito
+            context = new TestScope.Context();
+            contexts.put(testInstance, context);
+        }
+        return TestScope.enterContext(context);
+    }
+
+    /**
+     * Forgets and releases the {@link TestScope} context of a test instance that will not be used
+     * anymore, giving its recycled mocks back to the {@link MockPool}.
+     *
+     * @param testInstance The test instance.
+     */
+    void removeTestInstance(Object testInstance) {
+        TestScope.Context context = contexts.remove(testInstance);
+        if (context != null) {
+            context.release();
+            MockPool.release(context);
+        }
+    }
+
+    /**
+     * Checks if a parameter of a method can be injected: its key is bound, or it is a class that
+     * Guice can bind just-in-time in a method whose parameters Jukito injects. This leaves the
+     * other parameters to the other parameter resolvers, like the arguments of a parameterized test.
+     *
+     * @param method The method.
+     * @param index  The index of the parameter.
+     * @return {@code true} if the parameter can be injected.
+     */
+    boolean canInject(Method method, int index) {
+        Errors errors = new Errors(method);
+        List<Key<?>> keys = GuiceUtils.getMethodKeys(method, errors);
+        if (errors.hasErrors()) {
+            return false;
+        }
+        Key<?> key = GuiceUtils.ensureProvidedKey(keys.get(index), errors);
+        if (key == null) {
+            return false;
+        }
+        if (injector.getExistingBinding(key) != null) {
+            return true;
+        }
+        return JukitoModule.isTestMethod(method) && key.getAnnotationType() == null
+                && isJustInTimeBindable(key.getTypeLiteral().getRawType());
+    }
+
+    private static boolean isJustInTimeBindable(Class<?> type) {
+        if (type.isAnnotationPresent(ImplementedBy.class) || type.isAnnotationPresent(ProvidedBy.class)) {
+            return true;
+        }
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return false;
+        }
+        try {
+            InjectionPoint.forConstructorOf(type);
+            return true;
+        } catch (ConfigurationException e) {
+            return false;
+        }
+    }
+
+    InjectionPlan getPlan(Method method) throws InstantiationException, IllegalAccessException {
+        return methodInjectors.getPlan(method);
+    }
+
+    List<InjectedFrameworkMethod> expand(Method method) {
+        return AllCombinations.expand(method, allBindings);
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.Extension;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.jupiter.api.extension.TestTemplateInvocationContext;
+import org.junit.jupiter.api.extension.TestTemplateInvocationContextProvider;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+import org.mockito.Mockito;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+/**
+ * Test that the {@link JukitoExtension} injects test classes and the parameters of their
+ * methods, and expands the parameters annotated with {@literal @}{@link All}.
+ */
+@ExtendWith(JukitoExtension.class)
+class JukitoExtensionTest {
+
+    static class Module extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            bind(Service.class).to(ServiceImpl.class).in(TestSingleton.class);
+            bindManyInstances(String.class, "a", "b", "c");
+        }
+    }
+
+    interface Mocked {
+        int value();
+    }
+
+    interface Service {
+    }
+
+    static class ServiceImpl implements Service {
+    }
+
+    /**
+     * A parameter resolved by {@link OtherResolver}, like Mockito's {@literal @}Mock.
+     */
+    @Target(ElementType.PARAMETER)
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Other {
+    }
+
+    static class OtherResolver implements ParameterResolver {
+        @Override
+        public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+            return parameterContext.isAnnotated(Other.class);
+        }
+
+        @Override
+        public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+            return "other";
+        }
+    }
+
+    /**
+     * An argument of a {@link ArgumentTemplate}, like the arguments of a parameterized test.
+     */
+    static class Argument {
+    }
+
+    /**
+     * A test template with its own parameter resolver, like a parameterized test.
+     */
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @TestTemplate
+    @ExtendWith(ArgumentProvider.class)
+    @interface ArgumentTemplate {
+    }
+
+    static class ArgumentProvider implements TestTemplateInvocationContextProvider {
+        @Override
+        public boolean supportsTestTemplate(ExtensionContext context) {
+            return context.getRequiredTestMethod().isAnnotationPresent(ArgumentTemplate.class);
+        }
+
+        @Override
+        public Stream<TestTemplateInvocationContext> provideTestTemplateInvocationContexts(
+                ExtensionContext context) {
+            return Stream.<TestTemplateInvocationContext>of(new TestTemplateInvocationContext() {
+                @Override
+                public List<Extension> getAdditionalExtensions() {
+                    return Collections.<Extension>singletonList(new ParameterResolver() {
+                        @Override
+                        public boolean supportsParameter(ParameterContext parameterContext,
+                                ExtensionContext extensionContext) {
+                            return parameterContext.getParameter().getType() == Argument.class;
+                        }
+
+                        @Override
+                        public Object resolveParameter(ParameterContext parameterContext,
+                                ExtensionContext extensionContext) {
+                            return new Argument();
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    @ExtendWith({JukitoExtension.class, OtherResolver.class})
+    static class CompetingResolversTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bind(Service.class).to(ServiceImpl.class);
+            }
+        }
+
+        @Test
+        void annotatedParameterIsLeftToItsResolver(@Other String other, Service service) {
+            assertEquals("other", other);
+            assertNotNull(service);
+        }
+
+        @ArgumentTemplate
+        void argumentIsLeftToTheTemplate(Argument argument, Service service) {
+            assertNotNull(argument);
+            assertNotNull(service);
+        }
+    }
+
+    static final List<Injector> INJECTORS = Collections.synchronizedList(new ArrayList<Injector>());
+
+    @ExtendWith(JukitoExtension.class)
+    static class FirstSharingTestClass {
+        @Test
+        void test(Service service, Injector injector) {
+            INJECTORS.add(injector);
+        }
+    }
+
+    @ExtendWith(JukitoExtension.class)
+    static class SecondSharingTestClass {
+        @Test
+        void test(Service service, Injector injector) {
+            INJECTORS.add(injector);
+        }
+    }
+
+    static class ServiceModule extends AbstractModule {
+        @Override
+        protected void configure() {
+            bind(Service.class).to(ServiceImpl.class);
+        }
+    }
+
+    @ExtendWith(JukitoExtension.class)
+    @UseModules(ServiceModule.class)
+    static class UseModulesTestClass {
+        @Test
+        void test(Service service, Mocked mocked) {
+            assertTrue(service instanceof ServiceImpl);
+            assertTrue(Mockito.mockingDetails(mocked).isMock());
+        }
+    }
+
+    @ExtendWith(JukitoExtension.class)
+    static class ParallelTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bind(Service.class).to(ServiceImpl.class).in(TestSingleton.class);
+            }
+        }
+
+        static final CyclicBarrier BARRIER = new CyclicBarrier(2);
+        static final Set<Service> SERVICES = Collections.synchronizedSet(new HashSet<Service>());
+
+        @Inject
+        Service injectedService;
+
+        @Test
+        void first(Service service) throws Exception {
+            runInParallel(service);
+        }
+
+        @Test
+        void second(Service service) throws Exception {
+            runInParallel(service);
+        }
+
+        private void runInParallel(Service service) throws Exception {
+            assertSame(injectedService, service);
+            SERVICES.add(service);
+            // Only passes if both tests are running at the same time
+            BARRIER.await(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static final List<String> VALUES = Collections.synchronizedList(new ArrayList<String>());
+
+    @Inject
+    Service injectedService;
+
+    private Service serviceBeforeEach;
+
+    @AfterAll
+    static void allValuesWereUsed() {
+        assertEquals(3, VALUES.size());
+        assertTrue(VALUES.containsAll(Arrays.asList("a", "b", "c")));
+    }
+
+    @BeforeEach
+    void setUp(Service service) {
+        serviceBeforeEach = service;
+    }
+
+    @Test
+    void testSingletonsAreSharedWithinATest(Service service) {
+        assertSame(injectedService, service);
+        assertSame(serviceBeforeEach, service);
+    }
+
+    @Test
+    void missingBindingsAreMocked(Mocked mocked) {
+        assertTrue(Mockito.mockingDetails(mocked).isMock());
+    }
+
+    @Test
+    void jupiterParametersAreNotInjected(TestInfo testInfo) {
+        assertNotNull(testInfo.getDisplayName());
+    }
+
+    @TestTemplate
+    void allBindingsAreUsed(@All String value, Service service) {
+        assertSame(injectedService, service);
+        VALUES.add(value);
+    }
+
+    @Test
+    void parametersOfOtherResolversAreNotClaimed() {
+        TestExecutionSummary summary = run(Collections.<String, String>emptyMap(),
+                CompetingResolversTestClass.class);
+
+        assertEquals(2, summary.getTestsSucceededCount(), getFailures(summary));
+    }
+
+    @Test
+    void injectorIsSharedByTestClassesWithTheSameModules() {
+        INJECTORS.clear();
+
+        TestExecutionSummary summary = run(Collections.<String, String>emptyMap(),
+                FirstSharingTestClass.class, SecondSharingTestClass.class);
+
+        assertEquals(2, summary.getTestsSucceededCount(), getFailures(summary));
+        assertSame(INJECTORS.get(0), INJECTORS.get(1));
+    }
+
+    @Test
+    void useModulesAreInstalled() {
+        TestExecutionSummary summary = run(Collections.<String, String>emptyMap(), UseModulesTestClass.class);
+
+        assertEquals(1, summary.getTestsSucceededCount(), getFailures(summary));
+    }
+
+    @Test
+    void testsRunInParallelWithTheirOwnSingletons() {
+        Map<String, String> configuration = new HashMap<String, String>();
+        configuration.put("junit.jupiter.execution.parallel.enabled", "true");
+        configuration.put("junit.jupiter.execution.parallel.mode.default", "concurrent");
+        configuration.put("junit.jupiter.execution.parallel.config.strategy", "fixed");
+        configuration.put("junit.jupiter.execution.parallel.config.fixed.parallelism", "2");
+
+        TestExecutionSummary summary = run(configuration, ParallelTestClass.class);
+
+        assertEquals(2, summary.getTestsSucceededCount(), getFailures(summary));
+        assertEquals(2, ParallelTestClass.SERVICES.size());
+    }
+
+    private static String getFailures(TestExecutionSummary summary) {
+        List<String> failures = new ArrayList<String>();
+        for (TestExecutionSummary.Failure failure : summary.getFailures()) {
+            failures.add(failure.getTestIdentifier().getDisplayName() + ": " + failure.getException());
+        }
+        return failures.toString();
+    }
+
+    private static TestExecutionSummary run(Map<String, String> configuration, Class<?>... testClasses) {
+        LauncherDiscoveryRequestBuilder builder = LauncherDiscoveryRequestBuilder.request()
+                .configurationParameters(configuration);
+        for (Class<?> testClass : testClasses) {
+            builder.selectors(selectClass(testClass));
+        }
+        LauncherDiscoveryRequest request = builder.build();
+        SummaryGeneratingListener listener = new SummaryGeneratingListener();
+        LauncherFactory.create().execute(request, listener);
+        return listener.getSummary();
+    }
+}
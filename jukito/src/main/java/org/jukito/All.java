@@ -30,7 +30,8 @@ import com.google.inject.BindingAnnotation;
  * <p/>
  * If more than one parameter is annotated with {@literal @}{@link All} then
  * all combinations will be used. Therefore, be careful when using it on more than
- * two or three parameters as it can result in a combinatorial explosion.
+ * two or three parameters as it can result in a combinatorial explosion, or use
+ * {@literal @}{@link Combinations} to only cover every pair of bindings.
  * <p/>
  * Using the additional parameter {@link #value()} a subset of all bound values
  * can be specified to be run in the test function.
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+
+/**
+ * The bindings of an injector that can be used for parameters annotated with {@literal @}{@link All},
+ * grouped by type and name. It is built by going through the bindings of the injector once, so
+ * that finding the bindings of a parameter does not go through all the bindings of its type.
+ * <p/>
+ * As {@link TestModule#bindMany} annotates the bindings, the un-annotated bindings are typically
+ * unwanted mocks automatically bound by Jukito and are left out. The bindings of a type and name
+ * are kept in the order of the injector.
+ */
+final class AllBindingsIndex {
+
+    private static final Binding<?>[] NO_BINDINGS = new Binding<?>[0];
+
+    private final Map<Key<?>, Binding<?>[]> bindings = new HashMap<Key<?>, Binding<?>[]>();
+
+    AllBindingsIndex(Injector injector) {
+        Map<Key<?>, List<Binding<?>>> lists = new HashMap<Key<?>, List<Binding<?>>>();
+        for (Binding<?> binding : injector.getBindings().values()) {
+            Annotation annotation = binding.getKey().getAnnotation();
+            if (annotation == null) {
+                continue;
+            }
+            TypeLiteral<?> type = binding.getKey().getTypeLiteral();
+            add(lists, getKey(type, All.DEFAULT), binding);
+            String name = NamedUniqueAnnotations.getName(annotation);
+            if (name != null && !All.DEFAULT.equals(name)) {
+                add(lists, getKey(type, name), binding);
+            }
+        }
+        for (Map.Entry<Key<?>, List<Binding<?>>> entry : lists.entrySet()) {
+            bindings.put(entry.getKey(), entry.getValue().toArray(new Binding<?>[entry.getValue().size()]));
+        }
+    }
+
+    private static void add(Map<Key<?>, List<Binding<?>>> lists, Key<?> key, Binding<?> binding) {
+        List<Binding<?>> list = lists.get(key);
+        if (list == null) {
+            list = new ArrayList<Binding<?>>();
+            lists.put(key, list);
+        }
+        list.add(binding);
+    }
+
+    /**
+     * The bindings of a type with the default name are all its annotated bindings, so they are
+     * indexed by the un-annotated key of the type.
+     */
+    private static Key<?> getKey(TypeLiteral<?> type, String name) {
+        return All.DEFAULT.equals(name) ? Key.get(type) : Key.get(type, Names.named(name));
+    }
+
+    /**
+     * @param type The type of a parameter annotated with {@literal @}{@link All}.
+     * @param name The name of the {@literal @}{@link All} annotation.
+     * @return The bindings of {@code type}: all those with an annotation for the default name,
+     *         otherwise those bound with {@code name}. The array must not be modified.
+     */
+    Binding<?>[] get(TypeLiteral<?> type, String name) {
+        Binding<?>[] result = bindings.get(getKey(type, name));
+        return result == null ? NO_BINDINGS : result;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Method;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.runners.model.FrameworkMethod;
+
+import com.google.inject.Binding;
+import com.google.inject.Key;
+import com.google.inject.internal.Errors;
+
+/**
+ * The combinations of the bindings matching the parameters of a test method annotated with
+ * {@literal @}{@link All}, as a list with one {@link InjectedFrameworkMethod} per combination.
+ * <p/>
+ * The bindings of every parameter are kept once in an array, and a combination is a tuple of
+ * indices in these arrays. By default, every combination is used: the tuples are not stored but
+ * computed from their position in the list, the bindings of the last parameter varying first.
+ * When the test method is annotated with {@literal @}{@link Combinations}, only the tuples of a
+ * {@link CoveringArray} are used, and when it is annotated with
+ * {@literal @}{@link SampleCombinations}, only a random subset of the tuples. The
+ * {@link JukitoRunner} also keeps only the tuples of its {@link TestShard}, if any. In all cases, the
+ * {@link InjectedFrameworkMethod} of a combination is only created when it is read from the list.
+ */
+final class AllCombinations extends AbstractList<InjectedFrameworkMethod> implements RandomAccess {
+
+    /**
+     * The bindings of a combination, read from the shared binding arrays.
+     */
+    private static class Assignation extends AbstractList<Binding<?>> implements RandomAccess {
+        private final Binding<?>[][] bindings;
+        private final int[] indices;
+
+        Assignation(Binding<?>[][] bindings, int[] indices) {
+            this.bindings = bindings;
+            this.indices = indices;
+        }
+
+        @Override
+        public Binding<?> get(int index) {
+            return bindings[index][indices[index]];
+        }
+
+        @Override
+        public int size() {
+            return indices.length;
+        }
+    }
+
+    /**
+     * The test methods of a class, each expanded into its combinations, read one after the other.
+     */
+    private static class ExpandedMethods extends AbstractList<FrameworkMethod> implements RandomAccess {
+        private final List<AllCombinations> combinations;
+        private final int[] ends;
+
+        ExpandedMethods(List<AllCombinations> combinations) {
+            this.combinations = combinations;
+            ends = new int[combinations.size()];
+            long end = 0;
+            for (int i = 0; i < ends.length; i++) {
+                end += combinations.get(i).size();
+                ends[i] = checkSize(end, "the test methods");
+            }
+        }
+
+        @Override
+        public FrameworkMethod get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            // Find the first method whose combinations end after index
+            int low = 0;
+            int high = ends.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] <= index) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            int start = low == 0 ? 0 : ends[low - 1];
+            return combinations.get(low).get(index - start);
+        }
+
+        @Override
+        public int size() {
+            return ends.length == 0 ? 0 : ends[ends.length - 1];
+        }
+    }
+
+    private final Method javaMethod;
+    private final Binding<?>[][] bindings;
+    private final int[][] tuples;
+    private final int size;
+
+    /**
+     * @param javaMethod The test method.
+     * @param bindings   The bindings of every parameter annotated with {@literal @}{@link All}.
+     * @param tuples     The tuples of indices of the combinations to use, or {@code null} to use
+     *                   every combination.
+     */
+    private AllCombinations(Method javaMethod, Binding<?>[][] bindings, int[][] tuples) {
+        this.javaMethod = javaMethod;
+        this.bindings = bindings;
+        this.tuples = tuples;
+        if (tuples != null) {
+            size = tuples.length;
+        } else {
+            long combinationCount = 1;
+            for (Binding<?>[] parameterBindings : bindings) {
+                combinationCount = Math.min(combinationCount * parameterBindings.length, Integer.MAX_VALUE + 1L);
+            }
+            size = checkSize(combinationCount, javaMethod.toString());
+        }
+    }
+
+    /**
+     * @param javaMethod The test method.
+     * @param index      The bindings of the injector to look into.
+     * @return One {@link InjectedFrameworkMethod} per combination of bindings, or a single one if
+     *         {@code javaMethod} has no parameter annotated with {@literal @}{@link All}.
+     */
+    static List<InjectedFrameworkMethod> expand(Method javaMethod, AllBindingsIndex index) {
+        Errors errors = new Errors(javaMethod);
+        List<Key<?>> keys = GuiceUtils.getMethodKeys(javaMethod, errors);
+        errors.throwConfigurationExceptionIfErrorsExist();
+
+        List<Binding<?>[]> bindingsToUseForParameters = new ArrayList<>();
+        for (Key<?> key : keys) {
+            if (All.class.equals(key.getAnnotationType())) {
+                All allAnnotation = (All) key.getAnnotation();
+                // The arrays of the index are shared, they are never modified
+                bindingsToUseForParameters.add(index.get(key.getTypeLiteral(), allAnnotation.value()));
+            }
+        }
+        Binding<?>[][] bindings = bindingsToUseForParameters.toArray(
+                new Binding<?>[bindingsToUseForParameters.size()][]);
+        return new AllCombinations(javaMethod, bindings, getTuples(javaMethod, bindings));
+    }
+
+    /**
+     * @return The tuples of the combinations to use, or {@code null} if every combination must be used.
+     */
+    private static int[][] getTuples(Method javaMethod, Binding<?>[][] bindings) {
+        if (Boolean.getBoolean(SampleCombinations.FULL_PROPERTY)) {
+            return null;
+        }
+        int[][] tuples = getCoveringTuples(javaMethod, bindings);
+        SampleCombinations sample = javaMethod.getAnnotation(SampleCombinations.class);
+        if (sample == null) {
+            return tuples;
+        }
+        if (sample.max() < 1) {
+            throw new IllegalArgumentException("The maximum of @SampleCombinations on " + javaMethod
+                    + " must be positive: " + sample.max());
+        }
+
+        long combinationCount = tuples != null ? tuples.length : 1;
+        if (tuples == null) {
+            for (Binding<?>[] parameterBindings : bindings) {
+                combinationCount = multiply(combinationCount, parameterBindings.length);
+            }
+        }
+        if (combinationCount <= sample.max()) {
+            return tuples;
+        }
+
+        long[] indices = sample(combinationCount, sample.max(), new Random(getSeed(sample)));
+        int[][] sampledTuples = new int[indices.length][];
+        for (int i = 0; i < indices.length; i++) {
+            sampledTuples[i] = tuples != null ? tuples[(int) indices[i]] : decode(indices[i], bindings);
+        }
+        return sampledTuples;
+    }
+
+    private static long getSeed(SampleCombinations sample) {
+        String property = System.getProperty(SampleCombinations.SEED_PROPERTY);
+        if (property == null || property.trim().length() == 0) {
+            return sample.seed();
+        }
+        try {
+            return Long.parseLong(property.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The system property " + SampleCombinations.SEED_PROPERTY
+                    + " must be a number, got: " + property, e);
+        }
+    }
+
+    private static long multiply(long count, int factor) {
+        return factor != 0 && count > Long.MAX_VALUE / factor ? Long.MAX_VALUE : count * factor;
+    }
+
+    /**
+     * Draws {@code count} distinct indices below {@code bound} with Floyd's algorithm, which only
+     * needs as many random numbers as indices drawn.
+     *
+     * @return The indices drawn, in increasing order.
+     */
+    private static long[] sample(long bound, int count, Random random) {
+        Set<Long> indices = new TreeSet<Long>();
+        for (long j = bound - count; j < bound; j++) {
+            long index = nextLong(random, j + 1);
+            if (!indices.add(index)) {
+                indices.add(j);
+            }
+        }
+        long[] result = new long[count];
+        int i = 0;
+        for (Long index : indices) {
+            result[i++] = index;
+        }
+        return result;
+    }
+
+    private static long nextLong(Random random, long bound) {
+        if (bound <= Integer.MAX_VALUE) {
+            return random.nextInt((int) bound);
+        }
+        return (random.nextLong() & Long.MAX_VALUE) % bound;
+    }
+
+    /**
+     * @return The tuple of indices of the combination at {@code index} among every combination,
+     *         the bindings of the last parameter varying first.
+     */
+    private static int[] decode(long index, Binding<?>[][] bindings) {
+        int[] indices = new int[bindings.length];
+        long remainder = index;
+        for (int i = bindings.length - 1; i >= 0; i--) {
+            indices[i] = (int) (remainder % bindings[i].length);
+            remainder /= bindings[i].length;
+        }
+        return indices;
+    }
+
+    /**
+     * @return The tuples of a covering array of the bindings if {@code javaMethod} is annotated with
+     *         {@literal @}{@link Combinations}, or {@code null} if every combination must be used.
+     */
+    private static int[][] getCoveringTuples(Method javaMethod, Binding<?>[][] bindings) {
+        Combinations combinations = javaMethod.getAnnotation(Combinations.class);
+        if (combinations == null) {
+            return null;
+        }
+        if (combinations.strength() < 1) {
+            throw new IllegalArgumentException("The strength of @Combinations on " + javaMethod
+                    + " must be positive: " + combinations.strength());
+        }
+        int[] sizes = new int[bindings.length];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = bindings[i].length;
+            if (sizes[i] == 0) {
+                // No combination at all
+                return null;
+            }
+        }
+        return combinations.strength() < sizes.length ? CoveringArray.generate(sizes, combinations.strength()) : null;
+    }
+
+    /**
+     * @param methods The test methods.
+     * @param index   The bindings of the injector to look into.
+     * @param shard   The shard of the combinations to keep, or {@code null} to keep all of them.
+     * @return The combinations of all the test methods, one method after the other.
+     * @see #expand(Method, AllBindingsIndex)
+     */
+    static List<FrameworkMethod> expand(List<FrameworkMethod> methods, AllBindingsIndex index, TestShard shard) {
+        List<AllCombinations> combinations = new ArrayList<>(methods.size());
+        for (FrameworkMethod method : methods) {
+            AllCombinations methodCombinations = (AllCombinations) expand(method.getMethod(), index);
+            combinations.add(shard == null ? methodCombinations : methodCombinations.select(shard));
+        }
+        return new ExpandedMethods(combinations);
+    }
+
+    /**
+     * @return The combinations that belong to {@code shard}, in the same order.
+     */
+    private AllCombinations select(TestShard shard) {
+        List<int[]> selected = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int[] indices = getIndices(i);
+            if (shard.contains(javaMethod, indices)) {
+                selected.add(indices);
+            }
+        }
+        return new AllCombinations(javaMethod, bindings, selected.toArray(new int[selected.size()][]));
+    }
+
+    private static int checkSize(long size, String description) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many combinations of @All bindings for " + description);
+        }
+        return (int) size;
+    }
+
+    @Override
+    public InjectedFrameworkMethod get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new InjectedFrameworkMethod(javaMethod, new Assignation(bindings, getIndices(index)));
+    }
+
+    private int[] getIndices(int index) {
+        return tuples != null ? tuples[index] : decode(index, bindings);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -78,17 +78,27 @@ public class BindingsCollector {
         }
     }
 
-    private final AbstractModule module;
+    private final List<Element> elements;
     private final List<BindingInfo> bindingsObserved = new ArrayList<>();
     private final List<Message> messages = new ArrayList<>();
 
     BindingsCollector(AbstractModule module) {
-        this.module = module;
+        this(Elements.getElements(module));
+    }
+
+    /**
+     * Collects the bindings from elements that were already recorded, for example with
+     * {@link Elements#getElements(com.google.inject.Module...)}.
+     *
+     * @param elements The recorded elements.
+     */
+    BindingsCollector(List<Element> elements) {
+        this.elements = elements;
     }
 
     public void collectBindings() {
         GuiceElementVisitor visitor = new GuiceElementVisitor();
-        visitor.visitElements(Elements.getElements(module));
+        visitor.visitElements(elements);
 
         // TODO report errors?
     }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation can be used on a test method with several parameters annotated with
+ * {@literal @}{@link All} to run it with fewer combinations of bindings than all of them.
+ * Instead of every combination, the test method is run with a set of combinations where
+ * every pair of bindings, or more generally every {@link #strength()}-tuple of bindings, of
+ * any parameters appears at least once.
+ * <p/>
+ * Example:
+ * <pre>
+ * {@literal @}Test
+ * {@literal @}Combinations(strength = 2)
+ * public void someTest({@literal @}All Browser browser, {@literal @}All Locale locale,
+ *     {@literal @}All Screen screen) {
+ * }</pre>
+ *
+ * With 10 bindings for each parameter, the test runs about a hundred times instead of a
+ * thousand. The combinations are always the same for the same bindings. Setting the
+ * {@value SampleCombinations#FULL_PROPERTY} system property to {@code true} runs every
+ * combination instead.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Combinations {
+
+    /**
+     * The number of parameters whose bindings are combined in every possible way, {@code 2}
+     * for pairwise combinations. If it is not less than the number of parameters annotated with
+     * {@literal @}{@link All}, every combination is used.
+     */
+    int strength() default 2;
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import org.junit.runners.model.Statement;
+
+/**
+ * A {@link Statement} evaluated with the {@link TestScope} context of a test bound to the current
+ * thread. JUnit can evaluate part of a test on another thread, for example to enforce a timeout,
+ * and that thread must get the same test-scoped singletons as the test.
+ */
+class ContextStatement extends Statement {
+
+    private final Statement next;
+    private final TestScope.Context context;
+
+    ContextStatement(Statement next, TestScope.Context context) {
+        this.next = next;
+        this.context = context;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        TestScope.Context previous = TestScope.enterContext(context);
+        try {
+            next.evaluate();
+        } finally {
+            TestScope.exitContext(previous);
+        }
+    }
+}
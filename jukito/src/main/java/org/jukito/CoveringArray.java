@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Computes a covering array: a set of rows assigning a value to every parameter, such that
+ * every combination of values of any {@code strength} parameters appears in at least one row.
+ * Used by {@link AllCombinations} for the test methods annotated with
+ * {@literal @}{@link Combinations}, the values being the indices of the bindings of each parameter.
+ * <p/>
+ * The rows are built greedily, one at a time: a row starts with the first combination that is not
+ * covered yet, then each other parameter gets the value covering the most combinations that are
+ * not covered yet. The result only depends on the number of values of the parameters.
+ */
+final class CoveringArray {
+
+    /**
+     * The combinations of values of some parameters, and which of them are covered.
+     */
+    private static class Interaction {
+        private final int[] parameters;
+        private final int[] sizes;
+        private final BitSet uncovered;
+
+        Interaction(int[] parameters, int[] sizes) {
+            this.parameters = parameters;
+            this.sizes = sizes;
+            int count = 1;
+            for (int parameter : parameters) {
+                count *= sizes[parameter];
+            }
+            uncovered = new BitSet(count);
+            uncovered.set(0, count);
+        }
+
+        boolean involves(int parameter) {
+            for (int p : parameters) {
+                if (p == parameter) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return The index of the combination of values of the parameters in {@code row}, or
+         *         {@code -1} if one of the parameters has no value yet.
+         */
+        int indexOf(int[] row) {
+            int index = 0;
+            for (int parameter : parameters) {
+                if (row[parameter] < 0) {
+                    return -1;
+                }
+                index = index * sizes[parameter] + row[parameter];
+            }
+            return index;
+        }
+
+        /**
+         * Sets the values of the parameters in {@code row} to the combination at {@code index}.
+         */
+        void assign(int index, int[] row) {
+            int remainder = index;
+            for (int i = parameters.length - 1; i >= 0; i--) {
+                row[parameters[i]] = remainder % sizes[parameters[i]];
+                remainder /= sizes[parameters[i]];
+            }
+        }
+    }
+
+    private CoveringArray() {
+    }
+
+    /**
+     * @param sizes    The number of values of every parameter, all positive.
+     * @param strength The number of parameters whose values must be combined in every possible way,
+     *                 less than the number of parameters.
+     * @return The rows of the covering array.
+     */
+    static int[][] generate(int[] sizes, int strength) {
+        List<Interaction> interactions = new ArrayList<Interaction>();
+        addInteractions(sizes, strength, new int[strength], 0, 0, interactions);
+        int uncovered = 0;
+        for (Interaction interaction : interactions) {
+            uncovered += interaction.uncovered.cardinality();
+        }
+
+        List<int[]> rows = new ArrayList<int[]>();
+        while (uncovered > 0) {
+            int[] row = new int[sizes.length];
+            Arrays.fill(row, -1);
+            for (Interaction interaction : interactions) {
+                int first = interaction.uncovered.nextSetBit(0);
+                if (first >= 0) {
+                    interaction.assign(first, row);
+                    break;
+                }
+            }
+            for (int parameter = 0; parameter < sizes.length; parameter++) {
+                if (row[parameter] < 0) {
+                    row[parameter] = getBestValue(row, parameter, sizes[parameter], interactions);
+                }
+            }
+            for (Interaction interaction : interactions) {
+                int index = interaction.indexOf(row);
+                if (interaction.uncovered.get(index)) {
+                    interaction.uncovered.clear(index);
+                    uncovered--;
+                }
+            }
+            rows.add(row);
+        }
+        return rows.toArray(new int[rows.size()][]);
+    }
+
+    private static void addInteractions(int[] sizes, int strength, int[] parameters, int count, int next,
+            List<Interaction> interactions) {
+        if (count == strength) {
+            interactions.add(new Interaction(parameters.clone(), sizes));
+            return;
+        }
+        for (int parameter = next; parameter <= sizes.length - strength + count; parameter++) {
+            parameters[count] = parameter;
+            addInteractions(sizes, strength, parameters, count + 1, parameter + 1, interactions);
+        }
+    }
+
+    /**
+     * @return The value of {@code parameter} covering the most combinations that are not covered yet,
+     *         among the combinations whose other parameters already have a value in {@code row}.
+     */
+    private static int getBestValue(int[] row, int parameter, int size, List<Interaction> interactions) {
+        int bestValue = 0;
+        int bestCount = -1;
+        for (int value = 0; value < size; value++) {
+            row[parameter] = value;
+            int count = 0;
+            for (Interaction interaction : interactions) {
+                if (interaction.involves(parameter)) {
+                    int index = interaction.indexOf(row);
+                    if (index >= 0 && interaction.uncovered.get(index)) {
+                        count++;
+                    }
+                }
+            }
+            if (count > bestCount) {
+                bestValue = value;
+                bestCount = count;
+            }
+        }
+        return bestValue;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+/**
+ * Computes the value returned by a method of a fast stub, see
+ * {@link TestModule#bindFastStub(Class)}.
+ */
+public interface FastAnswer {
+
+    /**
+     * @param arguments The arguments the method was invoked with, an empty array if it has none.
+     * @return The value to return, ignored for {@code void} methods.
+     * @throws Throwable The exception to throw from the method.
+     */
+    Object answer(Object[] arguments) throws Throwable;
+}
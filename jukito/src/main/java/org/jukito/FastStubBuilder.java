@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.annotation.Annotation;
+
+import com.google.inject.Scope;
+import com.google.inject.binder.ScopedBindingBuilder;
+
+/**
+ * Declares the answers of the methods of a fast stub bound with
+ * {@link TestModule#bindFastStub(Class)}, and its scope.
+ * <p/>
+ * Example:
+ * <pre>
+ * bindFastStub(Clock.class)
+ *     .returning("zone", ZoneOffset.UTC)
+ *     .answering("millis", new FastAnswer() {
+ *       public Object answer(Object[] arguments) {
+ *         return System.nanoTime() / 1000000;
+ *       }
+ *     })
+ *     .in(TestSingleton.class);</pre>
+ *
+ * @param <T> The type of the stub.
+ */
+public final class FastStubBuilder<T> implements ScopedBindingBuilder {
+
+    private final FastStubProvider<T> provider;
+    private final ScopedBindingBuilder scopedBindingBuilder;
+
+    FastStubBuilder(FastStubProvider<T> provider, ScopedBindingBuilder scopedBindingBuilder) {
+        this.provider = provider;
+        this.scopedBindingBuilder = scopedBindingBuilder;
+    }
+
+    /**
+     * Makes all the methods named {@code methodName} return the same value.
+     *
+     * @param methodName The name of the methods.
+     * @param value      The value to return, assignable to the return type of the methods.
+     * @return This builder.
+     */
+    public FastStubBuilder<T> returning(String methodName, Object value) {
+        provider.addValue(methodName, value);
+        return this;
+    }
+
+    /**
+     * Makes all the methods named {@code methodName} return the value computed by an answer.
+     *
+     * @param methodName The name of the methods.
+     * @param answer     The answer computing the value to return.
+     * @return This builder.
+     */
+    public FastStubBuilder<T> answering(String methodName, FastAnswer answer) {
+        provider.addAnswer(methodName, answer);
+        return this;
+    }
+
+    @Override
+    public void in(Class<? extends Annotation> scopeAnnotation) {
+        scopedBindingBuilder.in(scopeAnnotation);
+    }
+
+    @Override
+    public void in(Scope scope) {
+        scopedBindingBuilder.in(scope);
+    }
+
+    @Override
+    public void asEagerSingleton() {
+        scopedBindingBuilder.asEagerSingleton();
+    }
+}
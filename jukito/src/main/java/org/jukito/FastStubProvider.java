@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.inject.Provider;
+
+/**
+ * Provides fast stubs of an interface, bound with {@link TestModule#bindFastStub(Class)}. A fast
+ * stub is a {@link Proxy} that looks up the answer of the invoked method in a map, without
+ * matching arguments or recording invocations. The methods without an answer return {@code null},
+ * {@code 0} or {@code false}.
+ * <p/>
+ * A new stub is returned each time the provider is invoked, unless the stub is bound as a
+ * {@link TestScope#SINGLETON} or {@link TestScope#EAGER_SINGLETON}. All the stubs share the answers.
+ *
+ * @param <T> The interface to stub.
+ */
+class FastStubProvider<T> implements Provider<T>, InvocationHandler {
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+    private static final Map<Class<?>, Object> DEFAULT_VALUES = new HashMap<Class<?>, Object>();
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+
+    static {
+        addPrimitive(boolean.class, Boolean.class, false);
+        addPrimitive(char.class, Character.class, '\0');
+        addPrimitive(byte.class, Byte.class, (byte) 0);
+        addPrimitive(short.class, Short.class, (short) 0);
+        addPrimitive(int.class, Integer.class, 0);
+        addPrimitive(long.class, Long.class, 0L);
+        addPrimitive(float.class, Float.class, 0.0f);
+        addPrimitive(double.class, Double.class, 0.0);
+    }
+
+    private final Class<T> classToProvide;
+    private final Map<Method, FastAnswer> answers = new HashMap<Method, FastAnswer>();
+
+    /**
+     * @param classToProvide The interface to stub.
+     */
+    FastStubProvider(Class<T> classToProvide) {
+        if (!classToProvide.isInterface()) {
+            throw new IllegalArgumentException("Only interfaces can be bound to a fast stub, "
+                    + classToProvide.getName() + " is not an interface.");
+        }
+        this.classToProvide = classToProvide;
+    }
+
+    private static void addPrimitive(Class<?> primitive, Class<?> wrapper, Object defaultValue) {
+        WRAPPERS.put(primitive, wrapper);
+        DEFAULT_VALUES.put(primitive, defaultValue);
+    }
+
+    void addValue(String methodName, final Object value) {
+        for (Method method : findMethods(methodName)) {
+            Class<?> returnType = method.getReturnType();
+            if (returnType == void.class) {
+                throw new IllegalArgumentException("Cannot return a value from the void method " + method);
+            }
+            Class<?> wrapper = WRAPPERS.containsKey(returnType) ? WRAPPERS.get(returnType) : returnType;
+            if (value == null ? returnType.isPrimitive() : !wrapper.isInstance(value)) {
+                throw new IllegalArgumentException("Cannot return " + value + " from " + method);
+            }
+        }
+        addAnswer(methodName, new FastAnswer() {
+            @Override
+            public Object answer(Object[] arguments) {
+                return value;
+            }
+        });
+    }
+
+    void addAnswer(String methodName, FastAnswer answer) {
+        for (Method method : findMethods(methodName)) {
+            answers.put(method, answer);
+        }
+    }
+
+    private Iterable<Method> findMethods(String methodName) {
+        Map<String, Method> methods = new HashMap<String, Method>();
+        for (Method method : classToProvide.getMethods()) {
+            if (method.getName().equals(methodName)) {
+                methods.put(method.toGenericString(), method);
+            }
+        }
+        if (methods.isEmpty()) {
+            throw new IllegalArgumentException("No method named " + methodName + " in "
+                    + classToProvide.getName());
+        }
+        return methods.values();
+    }
+
+    @Override
+    public T get() {
+        return classToProvide.cast(Proxy.newProxyInstance(classToProvide.getClassLoader(),
+                new Class<?>[]{classToProvide}, this));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        FastAnswer answer = answers.get(method);
+        if (answer != null) {
+            return answer.answer(args == null ? NO_ARGUMENTS : args);
+        }
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+        return DEFAULT_VALUES.get(method.getReturnType());
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("equals")) {
+            return proxy == args[0];
+        } else if (method.getName().equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        }
+        return "FastStub(" + classToProvide.getSimpleName() + ")@"
+                + Integer.toHexString(System.identityHashCode(proxy));
+    }
+}
@@ -37,10 +37,15 @@ public class InjectedAfterStatements extends Statement {
 
     public InjectedAfterStatements(Statement prev, List<FrameworkMethod> afters,
             Object target, Injector injector) {
+        this(prev, afters, target, new MethodInjectors(injector));
+    }
+
+    InjectedAfterStatements(Statement prev, List<FrameworkMethod> afters,
+            Object target, MethodInjectors injectors) {
         this.prev = prev;
         this.afters = new ArrayList<Statement>(afters.size());
         for (FrameworkMethod method : afters) {
-            this.afters.add(new InjectedStatement(method, target, injector));
+            this.afters.add(new InjectedStatement(method, target, injectors));
         }
     }
 
@@ -36,10 +36,15 @@ public class InjectedBeforeStatements extends Statement {
 
     public InjectedBeforeStatements(Statement next, List<FrameworkMethod> befores,
             Object target, Injector injector) {
+        this(next, befores, target, new MethodInjectors(injector));
+    }
+
+    InjectedBeforeStatements(Statement next, List<FrameworkMethod> befores,
+            Object target, MethodInjectors injectors) {
         this.next = next;
         this.befores = new ArrayList<Statement>(befores.size());
         for (FrameworkMethod method : befores) {
-            this.befores.add(new InjectedStatement(method, target, injector));
+            this.befores.add(new InjectedStatement(method, target, injectors));
         }
     }
 
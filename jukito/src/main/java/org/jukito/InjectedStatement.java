@@ -16,20 +16,10 @@
 
 package org.jukito;
 
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.Statement;
 
-import com.google.inject.Binding;
-import com.google.inject.Guice;
 import com.google.inject.Injector;
-import com.google.inject.Key;
-import com.google.inject.Module;
-import com.google.inject.internal.Errors;
 
 /**
  * A {@link Statement} invoking a method with parameters by filling-in these
@@ -39,72 +29,21 @@ class InjectedStatement extends Statement {
 
     private final FrameworkMethod method;
     private final Object test;
-    private final Injector injector;
+    private final MethodInjectors injectors;
 
     InjectedStatement(FrameworkMethod method, Object test, Injector injector) {
+        this(method, test, new MethodInjectors(injector));
+    }
+
+    InjectedStatement(FrameworkMethod method, Object test, MethodInjectors injectors) {
         this.method = method;
         this.test = test;
-        this.injector = injector;
+        this.injectors = injectors;
     }
 
     @Override
     public void evaluate() throws Throwable {
-        Method javaMethod = method.getMethod();
-        Injector methodInjector = injector;
-
-        UseModules useModules = javaMethod.getAnnotation(UseModules.class);
-        if (useModules != null) {
-            Class<? extends Module>[] moduleClasses = useModules.value();
-            final Module[] modules = new Module[moduleClasses.length];
-            for (int i = 0; i < modules.length; i++) {
-                modules[i] = moduleClasses[i].newInstance();
-            }
-            TestModule jukitoModule;
-            if (useModules.autoBindMocks()) {
-                jukitoModule = new JukitoModule() {
-                    @Override
-                    protected void configureTest() {
-                        for (Module m : modules) {
-                            install(m);
-                        }
-                    }
-                };
-            } else {
-                jukitoModule = new TestModule() {
-                    @Override
-                    protected void configureTest() {
-                        for (Module m : modules) {
-                            install(m);
-                        }
-                    }
-                };
-            }
-            methodInjector = Guice.createInjector(jukitoModule);
-        }
-
-        Errors errors = new Errors(javaMethod);
-        List<Key<?>> keys = GuiceUtils.getMethodKeys(javaMethod, errors);
-        errors.throwConfigurationExceptionIfErrorsExist();
-
-        Iterator<Binding<?>> bindingIter;
-        if (InjectedFrameworkMethod.class.isAssignableFrom(method.getClass())) {
-            bindingIter = ((InjectedFrameworkMethod) method).getBindingsToUseForParameters().iterator();
-        } else {
-            bindingIter = new ArrayList<Binding<?>>().iterator();
-        }
-
-        List<Object> injectedParameters = new ArrayList<Object>();
-        for (Key<?> key : keys) {
-            if (!All.class.equals(key.getAnnotationType())) {
-                injectedParameters.add(methodInjector.getInstance(key));
-            } else {
-                if (!bindingIter.hasNext()) {
-                    throw new AssertionError("Expected more bindings to fill @All parameters.");
-                }
-                injectedParameters.add(methodInjector.getInstance(bindingIter.next().getKey()));
-            }
-        }
-
-        method.invokeExplosively(test, injectedParameters.toArray());
+        InjectionPlan plan = injectors.getPlan(method.getMethod());
+        method.invokeExplosively(test, plan.getParameters(method));
     }
 }
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.runners.model.FrameworkMethod;
+
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.internal.Errors;
+
+/**
+ * The providers used to fill-in the parameters of a method, resolved once so that
+ * invoking the method only has to call them. Parameters annotated with
+ * {@literal @}{@link All} are filled-in with the bindings assigned to the
+ * {@link InjectedFrameworkMethod} being invoked.
+ */
+class InjectionPlan {
+
+    private final Injector injector;
+    private final boolean allBindingsFromInjector;
+    private final Provider<?>[] providers;
+
+    /**
+     * @param method                  The method to invoke.
+     * @param injector                The injector to use for the parameters.
+     * @param allBindingsFromInjector {@code true} if the bindings assigned to the {@literal @}{@link All}
+     *                                parameters come from {@code injector}, in which case their own
+     *                                provider is used.
+     */
+    InjectionPlan(Method method, Injector injector, boolean allBindingsFromInjector) {
+        this.injector = injector;
+        this.allBindingsFromInjector = allBindingsFromInjector;
+
+        Errors errors = new Errors(method);
+        List<Key<?>> keys = GuiceUtils.getMethodKeys(method, errors);
+        errors.throwConfigurationExceptionIfErrorsExist();
+
+        providers = new Provider<?>[keys.size()];
+        for (int i = 0; i < providers.length; i++) {
+            Key<?> key = keys.get(i);
+            if (!All.class.equals(key.getAnnotationType())) {
+                providers[i] = injector.getProvider(key);
+            }
+        }
+    }
+
+    /**
+     * @param method The method to invoke.
+     * @return The parameters to invoke {@code method} with.
+     */
+    Object[] getParameters(FrameworkMethod method) {
+        List<Binding<?>> bindings = null;
+        if (method instanceof InjectedFrameworkMethod) {
+            bindings = ((InjectedFrameworkMethod) method).getBindingsToUseForParameters();
+        }
+
+        Object[] parameters = new Object[providers.length];
+        int bindingIndex = 0;
+        for (int i = 0; i < parameters.length; i++) {
+            if (providers[i] != null) {
+                parameters[i] = providers[i].get();
+            } else {
+                if (bindings == null || bindingIndex >= bindings.size()) {
+                    throw new AssertionError("Expected more bindings to fill @All parameters.");
+                }
+                parameters[i] = getInstance(bindings.get(bindingIndex++));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @param index The index of a parameter that is not annotated with {@literal @}{@link All}.
+     * @return The value of the parameter.
+     */
+    Object getParameter(int index) {
+        if (providers[index] == null) {
+            throw new IllegalArgumentException("The parameter " + index + " is annotated with @All.");
+        }
+        return providers[index].get();
+    }
+
+    /**
+     * @param binding A binding assigned to a parameter annotated with {@literal @}{@link All}.
+     * @return The value of the parameter.
+     */
+    Object getInstance(Binding<?> binding) {
+        if (allBindingsFromInjector) {
+            return binding.getProvider().get();
+        }
+        return injector.getInstance(binding.getKey());
+    }
+}
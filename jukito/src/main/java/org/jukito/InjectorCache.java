@@ -0,0 +1,181 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Module;
+
+/**
+ * A JVM-wide cache of the injectors created by {@link JukitoRunner}. Test classes
+ * whose test module has the same {@link Fingerprint} share a single {@link Injector}.
+ * <p/>
+ * The cache is disabled by default, set the {@value #PROPERTY} system property to
+ * {@code true} to enable it. Objects bound in {@link TestScope} are still reset before
+ * every test, but objects bound as regular Guice singletons are shared by all the
+ * test classes using the same injector.
+ * <p/>
+ * The cache keeps the {@value #DEFAULT_SIZE} injectors used most recently, or the number
+ * given by the {@value #SIZE_PROPERTY} system property, so that the injectors of the test
+ * classes that already ran, and their singletons and mocks, can be garbage collected.
+ * <p/>
+ * The fingerprint does not include the test class given to {@link TestModule#setTestClass}.
+ * A test module whose bindings depend on the test class, other than the keys the test class
+ * needs, must not be used with the cache, since the test classes sharing it would get the
+ * bindings of the first one.
+ */
+final class InjectorCache {
+
+    /**
+     * The system property enabling the cache.
+     */
+    static final String PROPERTY = "jukito.injector.cache";
+
+    /**
+     * The system property giving the number of injectors kept by the cache.
+     */
+    static final String SIZE_PROPERTY = "jukito.injector.cache.size";
+
+    static final int DEFAULT_SIZE = 16;
+
+    /**
+     * Identifies the injectors that can be shared between test classes. Two test classes
+     * get the same fingerprint when they run with the same runner, use the same test module
+     * and need the same keys. The needed keys and the {@link MockProfile} drive the automatic
+     * bindings of {@link JukitoModule}, so they are only part of the fingerprint for these modules.
+     */
+    static class Fingerprint {
+        private final Class<?> runnerClass;
+        private final Class<?> moduleClass;
+        private final Set<Class<? extends Module>> useModuleClasses;
+        private final Set<Key<?>> testClassKeys;
+        private final MockProfile mockProfile;
+
+        Fingerprint(Class<?> runnerClass, TestModule testModule,
+                Set<Class<? extends Module>> useModuleClasses, Class<?> testClass) {
+            this.runnerClass = runnerClass;
+            this.moduleClass = testModule.getClass();
+            this.useModuleClasses = useModuleClasses;
+            if (testModule instanceof JukitoModule) {
+                testClassKeys = JukitoModule.getTestClassKeys(testClass);
+                mockProfile = ((JukitoModule) testModule).getMockProfile();
+            } else {
+                testClassKeys = Collections.emptySet();
+                mockProfile = null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) o;
+            return runnerClass.equals(other.runnerClass)
+                    && moduleClass.equals(other.moduleClass)
+                    && useModuleClasses.equals(other.useModuleClasses)
+                    && testClassKeys.equals(other.testClassKeys)
+                    && mockProfile == other.mockProfile;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = runnerClass.hashCode();
+            result = 31 * result + moduleClass.hashCode();
+            result = 31 * result + useModuleClasses.hashCode();
+            result = 31 * result + testClassKeys.hashCode();
+            return 31 * result + (mockProfile == null ? 0 : mockProfile.hashCode());
+        }
+    }
+
+    /**
+     * The injectors in access order, the least recently used first.
+     */
+    private static final Map<Fingerprint, Injector> injectors =
+            new LinkedHashMap<Fingerprint, Injector>(DEFAULT_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Fingerprint, Injector> eldest) {
+                    return size() > getSize();
+                }
+            };
+
+    private InjectorCache() {
+    }
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    /**
+     * @param fingerprint The fingerprint of the test module.
+     * @return The cached injector, or {@code null} if none was created for this fingerprint.
+     */
+    static synchronized Injector get(Fingerprint fingerprint) {
+        return injectors.get(fingerprint);
+    }
+
+    /**
+     * Caches an injector, unless another one was cached concurrently for the same fingerprint.
+     * The least recently used injector is evicted when the cache is full.
+     *
+     * @param fingerprint The fingerprint of the test module.
+     * @param injector    The injector created for this fingerprint.
+     * @return The injector to use, that is the one that ends up in the cache.
+     */
+    static synchronized Injector putIfAbsent(Fingerprint fingerprint, Injector injector) {
+        Injector previous = injectors.get(fingerprint);
+        if (previous != null) {
+            return previous;
+        }
+        injectors.put(fingerprint, injector);
+        return injector;
+    }
+
+    /**
+     * Forgets about all the cached injectors.
+     */
+    static synchronized void clear() {
+        injectors.clear();
+    }
+
+    private static int getSize() {
+        String property = System.getProperty(SIZE_PROPERTY);
+        if (property == null || property.trim().length() == 0) {
+            return DEFAULT_SIZE;
+        }
+        int size;
+        try {
+            size = Integer.parseInt(property.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The system property " + SIZE_PROPERTY
+                    + " must be a number of injectors, got: " + property, e);
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("The system property " + SIZE_PROPERTY
+                    + " must be at least 1, got: " + size);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.MockSettings;
+import org.mockito.Mockito;
+import org.mockito.internal.invocation.InvocationMatcher;
+import org.mockito.internal.stubbing.InvocationContainerImpl;
+import org.mockito.internal.util.MockUtil;
+import org.mockito.invocation.Invocation;
+import org.mockito.listeners.InvocationListener;
+import org.mockito.listeners.MethodInvocationReport;
+
+/**
+ * Bounds the invocations kept by the mocks and spies created by Jukito when the {@value #PROPERTY}
+ * system property is set to a positive number. Mockito keeps every invocation of a mock for its
+ * whole lifetime, so tests calling a collaborator a huge number of times can run out of memory.
+ * <p/>
+ * Once a mock has recorded the given number of invocations, they are cleared from its invocation
+ * container, so a mock never keeps more invocations than this limit. The listener is notified in
+ * the middle of a stubbing or a verification, so it does not go through
+ * {@link Mockito#clearInvocations}, which validates and resets the ongoing stubbing, and it keeps
+ * the invocation just reported, which may be the one being stubbed by {@link Mockito#when}.
+ * Verification only sees the invocations recorded since they were last cleared, stubbing is not
+ * affected. Mocks bound with the {@link MockProfile#STUB_ONLY} profile keep no invocations at all.
+ */
+final class InvocationHistory implements InvocationListener {
+
+    static final String PROPERTY = "jukito.mocks.history";
+
+    private final int limit;
+    private final AtomicInteger recorded = new AtomicInteger();
+
+    private InvocationHistory(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @return The maximum number of invocations kept by a mock, or {@code 0} if there is no limit.
+     */
+    static int getLimit() {
+        String property = System.getProperty(PROPERTY);
+        if (property == null || property.trim().length() == 0) {
+            return 0;
+        }
+        int limit;
+        try {
+            limit = Integer.parseInt(property.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The system property " + PROPERTY
+                    + " must be a number of invocations, got: " + property, e);
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("The system property " + PROPERTY
+                    + " cannot be negative: " + property);
+        }
+        return limit;
+    }
+
+    /**
+     * @param settings The settings of a new mock, that records its invocations.
+     * @return {@code settings}, bounding the invocations kept if there is a limit.
+     */
+    static MockSettings bound(MockSettings settings) {
+        int limit = getLimit();
+        return limit > 0 ? settings.invocationListeners(new InvocationHistory(limit)) : settings;
+    }
+
+    @Override
+    public void reportInvocation(MethodInvocationReport report) {
+        int count = recorded.incrementAndGet();
+        if (count >= limit && recorded.compareAndSet(count, 0)
+                && report.getInvocation() instanceof Invocation) {
+            trim((Invocation) report.getInvocation());
+        }
+    }
+
+    private void trim(Invocation invocation) {
+        InvocationContainerImpl container = MockUtil.getInvocationContainer(invocation.getMock());
+        List<Invocation> invocations = container.getInvocations();
+        container.clearInvocations();
+        // Invocations made to verify the mock are not registered
+        if (!invocations.isEmpty() && invocations.get(invocations.size() - 1) == invocation) {
+            container.setInvocationForPotentialStubbing(new InvocationMatcher(invocation));
+            recorded.incrementAndGet();
+        }
+    }
+}
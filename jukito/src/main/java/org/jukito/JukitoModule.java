@@ -18,6 +18,7 @@ package org.jukito;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
@@ -26,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,10 +38,12 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.inject.Binder;
 import com.google.inject.ConfigurationException;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.MembersInjector;
+import com.google.inject.Module;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import com.google.inject.Stage;
@@ -49,6 +53,8 @@ import com.google.inject.internal.Errors;
 import com.google.inject.internal.ProviderMethod;
 import com.google.inject.internal.ProviderMethodsModule;
 import com.google.inject.spi.Dependency;
+import com.google.inject.spi.Element;
+import com.google.inject.spi.Elements;
 import com.google.inject.spi.HasDependencies;
 import com.google.inject.spi.InjectionPoint;
 
@@ -63,12 +69,22 @@ import com.google.inject.spi.InjectionPoint;
  */
 public abstract class JukitoModule extends TestModule {
 
+    /**
+     * The annotations of the test methods whose parameters are injected. The JUnit Jupiter
+     * annotations are only added when they are on the classpath, for the jukito-junit5 extension.
+     */
+    private static final List<Class<? extends Annotation>> TEST_METHOD_ANNOTATIONS = findTestMethodAnnotations(
+            "org.junit.jupiter.api.Test", "org.junit.jupiter.api.TestTemplate",
+            "org.junit.jupiter.api.BeforeEach", "org.junit.jupiter.api.AfterEach");
+
     protected List<BindingInfo> bindingsObserved = Collections.emptyList();
 
     private final Set<Class<?>> forceMock = new HashSet<>();
     private final Set<Class<?>> dontForceMock = new HashSet<>();
     private final List<Key<?>> keysNeedingTransitiveDependencies = new ArrayList<>();
     private final Map<Class<?>, Object> primitiveTypes = new HashMap<>();
+    private List<Element> testElements;
+    private boolean recordingTestElements;
 
     public JukitoModule() {
         primitiveTypes.put(String.class, "");
@@ -93,6 +109,35 @@ public abstract class JukitoModule extends TestModule {
         this.bindingsObserved = bindingsObserved;
     }
 
+    /**
+     * Records the elements bound by {@link #configureTest()}, including everything bound by the
+     * modules it installs. Once recorded, {@link #configure()} replays these elements instead of
+     * calling {@link #configureTest()} again, so that the test modules are only configured once.
+     *
+     * @return The recorded elements, followed by the elements bound by the
+     *         {@literal @}{@link com.google.inject.Provides Provides} methods of this module. Use them
+     *         with {@link BindingsCollector} to find the bindings observed.
+     */
+    List<Element> recordTestElements() {
+        recordingTestElements = true;
+        try {
+            // Configure through a wrapping module, so that Guice does not record the @Provides
+            // methods of this module. These get bound when the injector installs this module.
+            testElements = Elements.getElements(new Module() {
+                @Override
+                public void configure(Binder binder) {
+                    JukitoModule.this.configure(binder);
+                }
+            });
+        } finally {
+            recordingTestElements = false;
+        }
+
+        List<Element> elements = new ArrayList<>(testElements);
+        elements.addAll(Elements.getElements(ProviderMethodsModule.forModule(this)));
+        return elements;
+    }
+
     /**
      * By default, only abstract classes, interfaces and classes annotated with
      * {@link TestMockSingleton} are automatically mocked. Use {@link #forceMock}
@@ -105,11 +150,29 @@ public abstract class JukitoModule extends TestModule {
         forceMock.add(klass);
     }
 
+    /**
+     * Override and return the {@link MockProfile} of the mocks bound automatically, for example
+     * {@link MockProfile#STUB_ONLY} for collaborators that are only stubbed and never verified.
+     * Mocks bound explicitly are not affected.
+     *
+     * @return The profile of the automatically bound mocks, {@link MockProfile#DEFAULT} by default.
+     */
+    protected MockProfile getMockProfile() {
+        return MockProfile.DEFAULT;
+    }
+
     @Override
     @SuppressWarnings({"unchecked", "rawtypes"})
     public final void configure() {
-        bindScopes();
-        configureTest();
+        if (testElements == null || recordingTestElements) {
+            bindScopes();
+            configureTestBindings();
+            if (recordingTestElements) {
+                return;
+            }
+        } else {
+            install(Elements.getModule(testElements));
+        }
 
         Set<Key<?>> keysObserved = new HashSet<>(bindingsObserved.size());
         Set<Key<?>> keysNeeded = new HashSet<>(bindingsObserved.size());
@@ -146,24 +209,59 @@ public abstract class JukitoModule extends TestModule {
             keysNeedingTransitiveDependencies.add(keyNeeded);
         }
 
-        // Preempt JIT binding by looking through the test class and any parent class
-        // looking for methods annotated with @Test, @Before, or @After.
+        // Preempt JIT binding of the keys needed by the test class.
         // Concrete classes bound in this way are bound in @TestSingleton.
+        for (Key<?> keyNeeded : getTestClassKeys(testClass)) {
+            addNeededKey(keysObserved, keysNeeded, keyNeeded, true);
+        }
+
+        // Recursively add the dependencies of all the bindings observed. Warning, we can't use for each here
+        // since it would result into concurrency issues.
+        for (int i = 0; i < keysNeedingTransitiveDependencies.size(); ++i) {
+            addDependencies(keysNeedingTransitiveDependencies.get(i), keysObserved, keysNeeded);
+        }
+
+        // Bind all keys needed but not observed as mocks.
+        for (Key<?> key : keysNeeded) {
+            Class<?> rawType = key.getTypeLiteral().getRawType();
+            if (!keysObserved.contains(key) && !isCoreGuiceType(rawType)
+                    && !isAssistedInjection(key)) {
+                Object primitiveInstance = getDummyInstanceOfPrimitiveType(rawType);
+                if (primitiveInstance == null) {
+                    if (rawType != Provider.class && !isInnerClass(rawType)) {
+                        bind(key).toProvider(new MockProvider(rawType, getMockProfile())).in(TestScope.SINGLETON);
+                    }
+                } else {
+                    bindKeyToInstance(key, primitiveInstance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the keys that have to be injected in a test class. These are the keys of the
+     * parameters of the methods annotated with {@literal @}{@link Test}, {@literal @}{@link Before}
+     * or {@literal @}{@link After}, or their JUnit Jupiter counterparts, in the test class and any
+     * parent class, skipping the parameters annotated with {@literal @}{@link All}, followed by
+     * the keys of the fields and methods annotated with {@literal @}{@link com.google.inject.Inject Inject}.
+     *
+     * @param testClass The test class, can be {@code null}.
+     * @return The keys needed by the test class, in the order they were found.
+     */
+    static Set<Key<?>> getTestClassKeys(Class<?> testClass) {
+        Set<Key<?>> keys = new LinkedHashSet<>();
+
         Class<?> currentClass = testClass;
         while (currentClass != null) {
             for (Method method : currentClass.getDeclaredMethods()) {
-                if (method.isAnnotationPresent(Test.class)
-                        || method.isAnnotationPresent(Before.class)
-                        || method.isAnnotationPresent(After.class)) {
-
+                if (isTestMethod(method)) {
                     Errors errors = new Errors(method);
-                    List<Key<?>> keys = GuiceUtils.getMethodKeys(method, errors);
+                    List<Key<?>> methodKeys = GuiceUtils.getMethodKeys(method, errors);
 
-                    for (Key<?> key : keys) {
+                    for (Key<?> key : methodKeys) {
                         // Skip keys annotated with @All
                         if (!All.class.equals(key.getAnnotationType())) {
-                            Key<?> keyNeeded = GuiceUtils.ensureProvidedKey(key, errors);
-                            addNeededKey(keysObserved, keysNeeded, keyNeeded, true);
+                            keys.add(GuiceUtils.ensureProvidedKey(key, errors));
                         }
                     }
                     errors.throwConfigurationExceptionIfErrorsExist();
@@ -172,45 +270,48 @@ public abstract class JukitoModule extends TestModule {
             currentClass = currentClass.getSuperclass();
         }
 
-        // Preempt JIT binding by looking through the test class looking for
-        // fields and methods annotated with @Inject.
-        // Concrete classes bound in this way are bound in @TestSingleton.
         if (testClass != null) {
             Set<InjectionPoint> injectionPoints = InjectionPoint.forInstanceMethodsAndFields(testClass);
 
             for (InjectionPoint injectionPoint : injectionPoints) {
                 Errors errors = new Errors(injectionPoint);
-                List<Dependency<?>> dependencies = injectionPoint.getDependencies();
-                for (Dependency<?> dependency : dependencies) {
-                    Key<?> keyNeeded = GuiceUtils.ensureProvidedKey(dependency.getKey(),
-                            errors);
-                    addNeededKey(keysObserved, keysNeeded, keyNeeded, true);
+                for (Dependency<?> dependency : injectionPoint.getDependencies()) {
+                    keys.add(GuiceUtils.ensureProvidedKey(dependency.getKey(), errors));
                 }
                 errors.throwConfigurationExceptionIfErrorsExist();
             }
         }
+        return keys;
+    }
 
-        // Recursively add the dependencies of all the bindings observed. Warning, we can't use for each here
-        // since it would result into concurrency issues.
-        for (int i = 0; i < keysNeedingTransitiveDependencies.size(); ++i) {
-            addDependencies(keysNeedingTransitiveDependencies.get(i), keysObserved, keysNeeded);
+    /**
+     * @param method A method of a test class.
+     * @return {@code true} if the keys of the parameters of {@code method} are bound by the module.
+     */
+    static boolean isTestMethod(Method method) {
+        for (Class<? extends Annotation> annotation : TEST_METHOD_ANNOTATIONS) {
+            if (method.isAnnotationPresent(annotation)) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        // Bind all keys needed but not observed as mocks.
-        for (Key<?> key : keysNeeded) {
-            Class<?> rawType = key.getTypeLiteral().getRawType();
-            if (!keysObserved.contains(key) && !isCoreGuiceType(rawType)
-                    && !isAssistedInjection(key)) {
-                Object primitiveInstance = getDummyInstanceOfPrimitiveType(rawType);
-                if (primitiveInstance == null) {
-                    if (rawType != Provider.class && !isInnerClass(rawType)) {
-                        bind(key).toProvider(new MockProvider(rawType)).in(TestScope.SINGLETON);
-                    }
-                } else {
-                    bindKeyToInstance(key, primitiveInstance);
-                }
+    @SuppressWarnings("unchecked")
+    private static List<Class<? extends Annotation>> findTestMethodAnnotations(String... optionalAnnotations) {
+        List<Class<? extends Annotation>> annotations = new ArrayList<>();
+        annotations.add(Test.class);
+        annotations.add(Before.class);
+        annotations.add(After.class);
+        for (String annotation : optionalAnnotations) {
+            try {
+                annotations.add((Class<? extends Annotation>) Class.forName(annotation, false,
+                        JukitoModule.class.getClassLoader()));
+            } catch (ClassNotFoundException e) {
+                // JUnit Jupiter is not on the classpath
             }
         }
+        return annotations;
     }
 
     private boolean isInnerClass(Class<?> rawType) {
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation can be used on a test class together with
+ * {@code @RunWith(JukitoRunner.class)} to run its test methods in parallel on a
+ * bounded pool of threads. Every test method, including every combination of
+ * {@literal @}{@link All} bindings, still gets its own instance of the test class
+ * and its own test-scoped singletons. The injector of the test class is shared.
+ * <p/>
+ * Example:
+ * <pre>
+ * {@literal @}RunWith(JukitoRunner.class)
+ * {@literal @}JukitoParallel(threads = 8)
+ * public class MyTest {
+ *   {@literal @}Test
+ *   public void someTest({@literal @}All Data data) {
+ *   }
+ * }</pre>
+ *
+ * Parallel execution can also be enabled for every test class by setting the
+ * {@value #PROPERTY} system property to the number of threads. The annotation
+ * takes precedence over the system property.
+ * <p/>
+ * Tests that mostly wait, for example on asynchronous collaborators, can run each
+ * test method on its own virtual thread with {@link #virtualThreads()}, or with the
+ * {@value #VIRTUAL_THREADS_PROPERTY} system property. The number of threads then
+ * limits how many test methods run at the same time. On a JVM without virtual
+ * threads, each test method runs on its own new platform thread, and a warning
+ * is logged.
+ * <p/>
+ * On a test method with parameters annotated with {@literal @}{@link All}, this
+ * annotation runs the combinations of bindings of that method in parallel instead,
+ * while the other test methods run sequentially. Every combination still gets its own
+ * instance of the test class and its own test-scoped singletons, and the results are
+ * reported in the order of the combinations, each as soon as it and the combinations
+ * before it are finished. It has no
+ * effect when the test methods of the class already run in parallel.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface JukitoParallel {
+
+    /**
+     * The system property giving the number of threads to use for test classes
+     * that are not annotated.
+     */
+    String PROPERTY = "jukito.parallel.threads";
+
+    /**
+     * The system property that, when {@code true}, runs the test methods of test classes
+     * that are not annotated on virtual threads.
+     */
+    String VIRTUAL_THREADS_PROPERTY = "jukito.parallel.virtual";
+
+    /**
+     * The number of threads to run the test methods on, or {@code 0} to use one
+     * thread per available processor.
+     */
+    int threads() default 0;
+
+    /**
+     * {@code true} to run every test method on its own virtual thread, in which case
+     * {@link #threads()} is the number of test methods running at the same time, or
+     * {@code 0} for no limit.
+     */
+    boolean virtualThreads() default false;
+}
@@ -18,12 +18,8 @@ package org.jukito;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.junit.After;
 import org.junit.Before;
@@ -34,15 +30,9 @@ import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.junit.runners.model.Statement;
 
-import com.google.inject.Binding;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
-import com.google.inject.Key;
-import com.google.inject.Module;
-import com.google.inject.Scope;
-import com.google.inject.TypeLiteral;
-import com.google.inject.internal.Errors;
-import com.google.inject.spi.DefaultBindingScopingVisitor;
+import com.google.inject.Provider;
 
 /*
  * This class implements the mockito runner but allows Guice dependency
@@ -62,18 +52,43 @@ import com.google.inject.spi.DefaultBindingScopingVisitor;
 public class JukitoRunner extends BlockJUnit4ClassRunner {
 
     private Injector injector;
+    private MethodInjectors methodInjectors;
+    private Provider<?>[] eagerTestSingletons;
+    private List<FrameworkMethod> testMethods;
+    private int testMethodsComputations;
+    private ParallelCombinations parallelCombinations;
 
     public JukitoRunner(Class<?> klass) throws InitializationError,
             InvocationTargetException, InstantiationException, IllegalAccessException {
         super(klass);
         ensureInjector();
+        configureScheduler();
     }
 
     public JukitoRunner(Class<?> klass, Injector injector) throws InitializationError,
             InvocationTargetException, InstantiationException, IllegalAccessException {
         // refactor needed here cos ensureInjector is run without reason here.
         super(klass);
-        this.injector = injector;
+        setInjector(injector);
+        // The test methods computed while validating used the other injector
+        testMethods = null;
+        configureScheduler();
+    }
+
+    /**
+     * Runs the test methods in parallel when the test class is annotated with
+     * {@literal @}{@link JukitoParallel} or when the {@value JukitoParallel#PROPERTY}
+     * system property is set. Otherwise, the combinations of {@literal @}{@link All} bindings
+     * of the test methods annotated with {@literal @}{@link JukitoParallel} run in parallel.
+     */
+    private void configureScheduler() {
+        ParallelScheduler scheduler = ParallelScheduler.forTestClass(getTestClass().getJavaClass());
+        if (scheduler != null) {
+            setScheduler(scheduler);
+            parallelCombinations = null;
+        } else {
+            parallelCombinations = new ParallelCombinations(this);
+        }
     }
 
     /**
@@ -93,140 +108,94 @@ public class JukitoRunner extends BlockJUnit4ClassRunner {
             return;
         }
         Class<?> testClass = getTestClass().getJavaClass();
-        TestModule testModule = getTestModule(testClass);
+        TestModule testModule = TestModules.getTestModule(testClass);
         testModule.setTestClass(testClass);
 
-        JukitoModule jukitoModule = null; // Only non-null if it's a JukitoModule
-        if (testModule instanceof JukitoModule) {
-            jukitoModule = (JukitoModule) testModule;
-
-            // Create a module just for the purpose of collecting bindings
-            TestModule testModuleForCollection = getTestModule(testClass);
-            BindingsCollector collector = new BindingsCollector(testModuleForCollection);
-            collector.collectBindings();
-            jukitoModule.setBindingsObserved(collector.getBindingsObserved());
-        }
-        injector = this.createInjector(testModule);
-        if (jukitoModule != null && jukitoModule.getReportWriter() != null) {
-            // An output report is desired
-            BindingsCollector collector = new BindingsCollector(jukitoModule);
-            collector.collectBindings();
-            jukitoModule.printReport(collector.getBindingsObserved());
+        if (InjectorCache.isEnabled()) {
+            InjectorCache.Fingerprint fingerprint = new InjectorCache.Fingerprint(getClass(), testModule,
+                    TestModules.getUseModuleClasses(testClass), testClass);
+            Injector cachedInjector = InjectorCache.get(fingerprint);
+            if (cachedInjector == null) {
+                cachedInjector = InjectorCache.putIfAbsent(fingerprint, createTestInjector(testModule));
+            }
+            setInjector(cachedInjector);
+        } else {
+            setInjector(createTestInjector(testModule));
         }
     }
 
-    private TestModule getTestModule(Class<?> testClass) throws InstantiationException, IllegalAccessException {
-        Set<Class<? extends Module>> useModuleClasses = getUseModuleClasses(testClass);
-        boolean autoBindMocks = getAutoBindMocksValue(testClass);
-        if (!useModuleClasses.isEmpty()) {
-            return createJukitoModule(useModuleClasses, autoBindMocks);
-        }
+    private void setInjector(Injector injector) {
+        this.injector = injector;
+        methodInjectors = new MethodInjectors(injector);
+        eagerTestSingletons = TestModules.findEagerTestSingletons(injector);
+    }
 
-        TestModule testModule = getInnerClassModule(testClass);
-        if (testModule != null) {
-            return testModule;
-        }
+    private Injector createTestInjector(TestModule testModule) {
+        TestModules.observeBindings(testModule);
+        Injector testInjector = this.createInjector(testModule);
+        TestModules.prepareMocks(testInjector);
+        TestModules.printReport(testModule);
+        return testInjector;
+    }
 
-        if (autoBindMocks) {
-            return new JukitoModule() {
-                @Override
-                protected void configureTest() {
-                }
-            };
-        } else {
-            return new TestModule() {
-                @Override
-                protected void configureTest() {
-                }
-            };
+    @Override
+    public void run(RunNotifier notifier) {
+        // add listener that validates framework usage at the end of each test
+        MockitoUsageValidator validator = new MockitoUsageValidator(notifier);
+        notifier.addListener(validator);
+        try {
+            super.run(notifier);
+        } finally {
+            notifier.removeListener(validator);
         }
     }
 
     /**
-     * Gets Guice modules registered with {@link UseModules} from test class and all super classes.
-     *
-     * @param testClass the test class running
-     * @return set of Guice modules
+     * Waits for the combinations still running in parallel once all the children were run,
+     * see {@link ParallelCombinations}.
      */
-    private Set<Class<? extends Module>> getUseModuleClasses(Class<?> testClass) {
-        Class<?> currentClass = testClass;
-        Set<Class<? extends Module>> modules = new HashSet<>();
-        while (currentClass != null) {
-            UseModules useModules = currentClass.getAnnotation(UseModules.class);
-            if (useModules != null) {
-                Collections.addAll(modules, useModules.value());
-            }
-            currentClass = currentClass.getSuperclass();
+    @Override
+    protected Statement childrenInvoker(final RunNotifier notifier) {
+        final Statement children = super.childrenInvoker(notifier);
+        if (parallelCombinations == null) {
+            return children;
         }
-        return modules;
-    }
-
-    private TestModule getInnerClassModule(Class<?> testClass)
-            throws InstantiationException, IllegalAccessException {
-        Class<?> currentClass = testClass;
-        while (currentClass != null) {
-            for (Class<?> innerClass : currentClass.getDeclaredClasses()) {
-                if (TestModule.class.isAssignableFrom(innerClass)) {
-                    return (TestModule) innerClass.newInstance();
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                try {
+                    children.evaluate();
+                } finally {
+                    parallelCombinations.finish(notifier);
                 }
             }
-            currentClass = currentClass.getSuperclass();
-        }
-        return null;
+        };
     }
 
-    private boolean getAutoBindMocksValue(Class<?> testClass) {
-        boolean autoBindMocks = true;
-        Class<?> currentClass = testClass;
-        while (currentClass != null) {
-            UseModules useModules = currentClass.getAnnotation(UseModules.class);
-            if (useModules != null) {
-                autoBindMocks = useModules.autoBindMocks();
-                break;
-            }
-            currentClass = currentClass.getSuperclass();
+    @Override
+    protected void runChild(FrameworkMethod method, RunNotifier notifier) {
+        if (parallelCombinations == null || !parallelCombinations.schedule(method, notifier)) {
+            runChildInContext(method, notifier);
         }
-        return autoBindMocks;
     }
 
-    private TestModule createJukitoModule(final Iterable<Class<? extends Module>> moduleClasses,
-            boolean autoBindMocks) {
-        if (autoBindMocks) {
-            return new JukitoModule() {
-                @Override
-                protected void configureTest() {
-                    for (Class<? extends Module> mClass : moduleClasses) {
-                        try {
-                            install(mClass.newInstance());
-                        } catch (Exception e) {
-                            throw new RuntimeException(e);
-                        }
-                    }
-                }
-            };
-        } else {
-            return new TestModule() {
-                @Override
-                protected void configureTest() {
-                    for (Class<? extends Module> mClass : moduleClasses) {
-                        try {
-                            install(mClass.newInstance());
-                        } catch (Exception e) {
-                            throw new RuntimeException(e);
-                        }
-                    }
-                }
-            };
+    /**
+     * Runs every test in its own {@link TestScope} context, so that its test-scoped
+     * singletons are not shared with tests running at the same time in other threads.
+     * The recycled mocks of the test are given back to the {@link MockPool} afterwards.
+     */
+    void runChildInContext(FrameworkMethod method, RunNotifier notifier) {
+        TestScope.Context context = new TestScope.Context();
+        TestScope.Context previous = TestScope.enterContext(context);
+        try {
+            super.runChild(method, notifier);
+        } finally {
+            TestScope.exitContext(previous);
+            context.release();
+            MockPool.release(context);
         }
     }
 
-    @Override
-    public void run(RunNotifier notifier) {
-        // add listener that validates framework usage at the end of each test
-        notifier.addListener(new MockitoUsageValidator(notifier));
-        super.run(notifier);
-    }
-
     @Override
     protected Object createTest() throws Exception {
         TestScope.clear();
@@ -234,9 +203,13 @@ public class JukitoRunner extends BlockJUnit4ClassRunner {
         return injector.getInstance(getTestClass().getJavaClass());
     }
 
+    /**
+     * The test method can be invoked on another thread to enforce its timeout, so it is invoked
+     * with the {@link TestScope} context of the test.
+     */
     @Override
     protected Statement methodInvoker(FrameworkMethod method, Object test) {
-        return new InjectedStatement(method, test, injector);
+        return new ContextStatement(new InjectedStatement(method, test, methodInjectors), TestScope.getContext());
     }
 
     @Override
@@ -250,7 +223,7 @@ public class JukitoRunner extends BlockJUnit4ClassRunner {
         List<FrameworkMethod> befores = getTestClass().getAnnotatedMethods(
                 Before.class);
         return befores.isEmpty() ? statement : new InjectedBeforeStatements(statement,
-                befores, target, injector);
+                befores, target, methodInjectors);
     }
 
     @Override
@@ -263,40 +236,42 @@ public class JukitoRunner extends BlockJUnit4ClassRunner {
         }
         List<FrameworkMethod> afters = getTestClass().getAnnotatedMethods(
                 After.class);
-        return afters.isEmpty() ? statement : new InjectedAfterStatements(statement,
-                afters, target, injector);
+        // Rules, like a timeout, can evaluate the befores and afters on another thread
+        return new ContextStatement(afters.isEmpty() ? statement : new InjectedAfterStatements(statement,
+                afters, target, methodInjectors), TestScope.getContext());
     }
 
+    /**
+     * Computes the test methods once, expanding the methods with parameters annotated with
+     * {@literal @}{@link All} into one {@link InjectedFrameworkMethod} per combination of bindings.
+     * The result is kept for the lifetime of the runner, the combinations are only created when
+     * they are read from it, see {@link AllCombinations}. When the {@link TestShard} system
+     * properties are set, only the combinations of this shard are kept.
+     *
+     * @return An unmodifiable list of the test methods.
+     */
     @Override
     protected List<FrameworkMethod> computeTestMethods() {
-        try {
-            ensureInjector();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-        List<FrameworkMethod> testMethods = getTestClass().getAnnotatedMethods(Test.class);
-        List<FrameworkMethod> result = new ArrayList<>(testMethods.size());
-        for (FrameworkMethod method : testMethods) {
-            Method javaMethod = method.getMethod();
-            Errors errors = new Errors(javaMethod);
-            List<Key<?>> keys = GuiceUtils.getMethodKeys(javaMethod, errors);
-            errors.throwConfigurationExceptionIfErrorsExist();
-
-            List<List<Binding<?>>> bindingsToUseForParameters = new ArrayList<>();
-            for (Key<?> key : keys) {
-                if (All.class.equals(key.getAnnotationType())) {
-                    All allAnnotation = (All) key.getAnnotation();
-                    TypeLiteral<?> typeLiteral = key.getTypeLiteral();
-                    List<Binding<?>> bindings = getBindingsForParameterWithAllAnnotation(allAnnotation, typeLiteral);
-                    bindingsToUseForParameters.add(bindings);
-                }
+        if (testMethods == null) {
+            try {
+                ensureInjector();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
             }
-            // Add an injected method for every combination of binding
-            addAllBindingAssignations(bindingsToUseForParameters, 0,
-                    new ArrayList<Binding<?>>(bindingsToUseForParameters.size()),
-                    javaMethod, result);
+            // The bindings of the injector are indexed once for all the test methods
+            AllBindingsIndex index = new AllBindingsIndex(injector);
+            testMethods = Collections.unmodifiableList(AllCombinations.expand(
+                    getTestClass().getAnnotatedMethods(Test.class), index, TestShard.fromProperties()));
+            testMethodsComputations++;
         }
-        return result;
+        return testMethods;
+    }
+
+    /**
+     * @return The number of times the test methods were computed by {@link #computeTestMethods()}.
+     */
+    int getTestMethodsComputations() {
+        return testMethodsComputations;
     }
 
     @Override
@@ -309,90 +284,9 @@ public class JukitoRunner extends BlockJUnit4ClassRunner {
         }
     }
 
-    /**
-     * Computes a list of all bindings which match a {@link All} annotation.
-     *
-     * @param allAnnotation the annotation to match
-     * @param typeLiteral   the type of the bindings.
-     * @return the computed list.
-     */
-    private List<Binding<?>> getBindingsForParameterWithAllAnnotation(All allAnnotation, TypeLiteral<?> typeLiteral) {
-        List<Binding<?>> result = new ArrayList<>();
-        String bindingName = allAnnotation.value();
-        if (All.DEFAULT.equals(bindingName)) {
-            // If the annotation is with the default name bind all bindings
-            result.addAll(injector.findBindingsByType(typeLiteral));
-        } else {
-            // Else bind only those bindings which have a key with the same name
-            for (Binding<?> binding : injector.findBindingsByType(typeLiteral)) {
-                if (NamedUniqueAnnotations.matches(bindingName, binding.getKey().getAnnotation())) {
-                    result.add(binding);
-                }
-            }
-        }
-        return result;
-    }
-
-    /**
-     * This method looks at all possible way to assign the bindings in
-     * {@code bindingsToUseForParameters}, starting at index {@code index}.
-     * If {@code index} is larger than the number of elements in {@code bindingsToUseForParameters}
-     * then the {@code currentAssignation} with {@javaMethod} is added to {@code result}.
-     *
-     * @param result
-     * @param javaMethod
-     * @param bindingsToUseForParameters
-     * @param index
-     * @param currentAssignation
-     */
-    private void addAllBindingAssignations(
-            List<List<Binding<?>>> bindingsToUseForParameters, int index,
-            List<Binding<?>> currentAssignation,
-            Method javaMethod, List<FrameworkMethod> result) {
-
-        if (index >= bindingsToUseForParameters.size()) {
-            List<Binding<?>> assignation = new ArrayList<>(currentAssignation.size());
-            assignation.addAll(currentAssignation);
-            result.add(new InjectedFrameworkMethod(javaMethod, assignation));
-            return;
-        }
-
-        for (Binding<?> binding : bindingsToUseForParameters.get(index)) {
-            if (binding.getKey().getAnnotation() == null) {
-                // As TestModule.bindMany() annotates the bindings, the un-annotated bindings are typically unwanted
-                // mocks automatically bound by Jukito.
-                continue;
-            }
-
-            currentAssignation.add(binding);
-            if (currentAssignation.size() != index + 1) {
-                throw new AssertionError("Size of currentAssignation list is wrong.");
-            }
-            addAllBindingAssignations(bindingsToUseForParameters, index + 1,
-                    currentAssignation,
-                    javaMethod, result);
-            currentAssignation.remove(index);
-        }
-    }
-
     private void instantiateEagerTestSingletons() {
-        DefaultBindingScopingVisitor<Boolean> isEagerTestScopeSingleton =
-                new DefaultBindingScopingVisitor<Boolean>() {
-                    public Boolean visitScope(Scope scope) {
-                        return scope == TestScope.EAGER_SINGLETON;
-                    }
-                };
-        for (Binding<?> binding : injector.getBindings().values()) {
-            boolean instantiate = false;
-            if (binding != null) {
-                Boolean result = binding.acceptScopingVisitor(isEagerTestScopeSingleton);
-                if (result != null && result) {
-                    instantiate = true;
-                }
-            }
-            if (instantiate) {
-                binding.getProvider().get();
-            }
+        for (Provider<?> provider : eagerTestSingletons) {
+            provider.get();
         }
     }
 
@@ -407,7 +301,8 @@ public class JukitoRunner extends BlockJUnit4ClassRunner {
         validatePublicVoidMethods(Before.class, false, errors);
         validateTestMethods(errors);
 
-        if (computeTestMethods().size() == 0) {
+        // All the tests of a class can belong to other shards
+        if (computeTestMethods().size() == 0 && TestShard.fromProperties() == null) {
             errors.add(new Exception("No runnable methods"));
         }
     }
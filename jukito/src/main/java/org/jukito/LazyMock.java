@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+
+/**
+ * A cheap placeholder for a mock of an interface, used by the {@link MockProvider} when the
+ * {@value #PROPERTY} system property is {@code true}. The real mock is only created the first
+ * time the placeholder is invoked, or given to Mockito, for example with
+ * {@link org.mockito.Mockito#when when} or {@link org.mockito.Mockito#verify verify}. Mockito
+ * finds the real mock through the {@link LazyMockResolver}.
+ * <p/>
+ * Placeholders are {@link Proxy proxies}, so only interfaces are mocked lazily. The placeholder
+ * is equal to itself only, even before the real mock is created.
+ */
+final class LazyMock implements InvocationHandler {
+
+    static final String PROPERTY = "jukito.mocks.lazy";
+
+    private final MockProvider<?> provider;
+    private volatile Object mock;
+
+    private LazyMock(MockProvider<?> provider) {
+        this.provider = provider;
+    }
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    /**
+     * @param type     The interface to mock.
+     * @param provider The provider creating the real mock.
+     * @return A placeholder for a mock of {@code type}, or {@code null} if it cannot be created.
+     */
+    static <T> T create(Class<T> type, MockProvider<T> provider) {
+        try {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    new LazyMock(provider)));
+        } catch (IllegalArgumentException e) {
+            // The interface is not visible from its own class loader, mock it right away
+            return null;
+        }
+    }
+
+    /**
+     * @param instance Any object.
+     * @return The real mock if {@code instance} is a placeholder, {@code instance} otherwise.
+     */
+    static Object resolve(Object instance) {
+        LazyMock lazyMock = getLazyMock(instance);
+        return lazyMock == null ? instance : lazyMock.getMock();
+    }
+
+    /**
+     * @param instance Any object.
+     * @return {@code true} if {@code instance} is a placeholder whose real mock was created.
+     */
+    static boolean isMaterialized(Object instance) {
+        LazyMock lazyMock = getLazyMock(instance);
+        return lazyMock != null && lazyMock.mock != null;
+    }
+
+    private static LazyMock getLazyMock(Object instance) {
+        if (instance != null && Proxy.isProxyClass(instance.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(instance);
+            if (handler instanceof LazyMock) {
+                return (LazyMock) handler;
+            }
+        }
+        return null;
+    }
+
+    private Object getMock() {
+        Object result = mock;
+        if (result == null) {
+            synchronized (this) {
+                result = mock;
+                if (result == null) {
+                    result = provider.createMock();
+                    mock = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            }
+        }
+        if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            method.setAccessible(true);
+        }
+        try {
+            return method.invoke(getMock(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
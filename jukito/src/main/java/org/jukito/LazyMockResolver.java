@@ -0,0 +1,31 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import org.mockito.plugins.MockResolver;
+
+/**
+ * Lets Mockito use the placeholders created by Jukito when mocks are created lazily as if
+ * they were the real mocks. Registered as a Mockito plugin, it is not meant to be used directly.
+ */
+public class LazyMockResolver implements MockResolver {
+
+    @Override
+    public Object resolve(Object instance) {
+        return LazyMock.resolve(instance);
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+
+/**
+ * Keeps the injectors used to fill-in the parameters of the methods invoked by a
+ * {@link JukitoRunner}. A method annotated with {@link UseModules} gets its own injector,
+ * created the first time the method is invoked and reused afterwards, for example by
+ * every combination of {@literal @}{@link All} bindings. Other methods use the injector
+ * of the test class.
+ * <p/>
+ * Like for the injector of the test class, the objects bound in {@link TestScope} are
+ * reset before every test.
+ * <p/>
+ * The {@link InjectionPlan} of every method is also kept, so that the keys and providers
+ * of its parameters are only resolved once.
+ */
+class MethodInjectors {
+
+    private final Injector classInjector;
+    private final ConcurrentMap<Method, Injector> methodInjectors = new ConcurrentHashMap<Method, Injector>();
+    private final ConcurrentMap<Method, InjectionPlan> plans = new ConcurrentHashMap<Method, InjectionPlan>();
+
+    MethodInjectors(Injector classInjector) {
+        this.classInjector = classInjector;
+    }
+
+    /**
+     * @param method The method to invoke.
+     * @return The injector to use for the parameters of {@code method}.
+     */
+    private Injector get(Method method) throws InstantiationException, IllegalAccessException {
+        UseModules useModules = method.getAnnotation(UseModules.class);
+        if (useModules == null) {
+            return classInjector;
+        }
+
+        Injector injector = methodInjectors.get(method);
+        if (injector == null) {
+            injector = createInjector(useModules);
+            Injector previous = methodInjectors.putIfAbsent(method, injector);
+            if (previous != null) {
+                injector = previous;
+            }
+        }
+        return injector;
+    }
+
+    /**
+     * @param method The method to invoke.
+     * @return The plan to fill-in the parameters of {@code method}.
+     */
+    InjectionPlan getPlan(Method method) throws InstantiationException, IllegalAccessException {
+        InjectionPlan plan = plans.get(method);
+        if (plan == null) {
+            Injector injector = get(method);
+            plan = new InjectionPlan(method, injector, injector == classInjector);
+            InjectionPlan previous = plans.putIfAbsent(method, plan);
+            if (previous != null) {
+                plan = previous;
+            }
+        }
+        return plan;
+    }
+
+    private Injector createInjector(final UseModules useModules)
+            throws InstantiationException, IllegalAccessException {
+        Class<? extends Module>[] moduleClasses = useModules.value();
+        final Module[] modules = new Module[moduleClasses.length];
+        for (int i = 0; i < modules.length; i++) {
+            modules[i] = moduleClasses[i].newInstance();
+        }
+        TestModule jukitoModule;
+        if (useModules.autoBindMocks()) {
+            jukitoModule = new JukitoModule() {
+                @Override
+                protected void configureTest() {
+                    for (Module m : modules) {
+                        install(m);
+                    }
+                }
+
+                @Override
+                protected MockProfile getMockProfile() {
+                    return useModules.mockProfile();
+                }
+            };
+        } else {
+            jukitoModule = new TestModule() {
+                @Override
+                protected void configureTest() {
+                    for (Module m : modules) {
+                        install(m);
+                    }
+                }
+            };
+        }
+        Injector injector = Guice.createInjector(jukitoModule);
+        TestModules.prepareMocks(injector);
+        return injector;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import org.mockito.Mockito;
+import org.mockito.mock.MockCreationSettings;
+
+import com.google.inject.Binding;
+import com.google.inject.Scope;
+import com.google.inject.spi.DefaultBindingScopingVisitor;
+
+/**
+ * A pool of mocks, per mocked type and {@link MockProfile}, used by the {@link MockProvider} when
+ * the {@value #PROPERTY} system property is {@code true}. Instead of creating new mocks for
+ * every test, the mocks taken during a test are kept in its {@link TestScope} context and
+ * given back to the pool when the test is finished, after being reset with
+ * {@link Mockito#reset}.
+ * <p/>
+ * The pool is shared by all the threads of the JVM, so the mocks are also recycled when the tests
+ * run in parallel, where every run, and with virtual threads every test, gets new threads.
+ * <p/>
+ * Only the mocks that live in {@link TestScope}, or that are not scoped, are recycled. Objects
+ * that outlive a test must not keep a reference to them, since they will be reset and
+ * given to another test.
+ */
+final class MockPool {
+
+    static final String PROPERTY = "jukito.mocks.recycle";
+
+    private static final Map<MockProfile, ConcurrentMap<Class<?>, Queue<Object>>> pools =
+            new EnumMap<MockProfile, ConcurrentMap<Class<?>, Queue<Object>>>(MockProfile.class);
+
+    static {
+        for (MockProfile profile : MockProfile.values()) {
+            pools.put(profile, new ConcurrentHashMap<Class<?>, Queue<Object>>());
+        }
+    }
+
+    private static final DefaultBindingScopingVisitor<Boolean> IS_TEST_SCOPED =
+            new DefaultBindingScopingVisitor<Boolean>() {
+                @Override
+                public Boolean visitScope(Scope scope) {
+                    return scope == TestScope.SINGLETON || scope == TestScope.EAGER_SINGLETON;
+                }
+
+                @Override
+                public Boolean visitNoScoping() {
+                    return true;
+                }
+
+                @Override
+                protected Boolean visitOther() {
+                    return false;
+                }
+            };
+
+    private MockPool() {
+    }
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    /**
+     * Takes a mock from the pool, or creates it if the pool is empty.
+     * The mock is kept in the current {@link TestScope} context until {@link #release} is called.
+     *
+     * @param type    The type to mock.
+     * @param profile The profile of the mock.
+     * @return A mock of {@code type}.
+     */
+    static <T> T acquire(Class<T> type, MockProfile profile) {
+        Queue<Object> pool = pools.get(profile).get(type);
+        Object mock = pool == null ? null : pool.poll();
+        if (mock == null) {
+            mock = Mockito.mock(type, profile.createSettings());
+        }
+        TestScope.getContext().addRecycledMock(mock);
+        return type.cast(mock);
+    }
+
+    /**
+     * Resets the mocks taken for a {@link TestScope} context and gives them back to the pool.
+     * The mocks shared between tests, like the spies of the
+     * {@link SharedSpyProvider}, are reset as well. The context must not be used anymore.
+     *
+     * @param context The context of a finished test.
+     */
+    static void release(TestScope.Context context) {
+        Object mock = context.pollRecycledMock();
+        while (mock != null) {
+            Mockito.reset(mock);
+            MockCreationSettings<?> settings = Mockito.mockingDetails(mock).getMockCreationSettings();
+            ConcurrentMap<Class<?>, Queue<Object>> pool = pools.get(MockProfile.of(settings));
+            Class<?> type = settings.getTypeToMock();
+            Queue<Object> typePool = pool.get(type);
+            if (typePool == null) {
+                Queue<Object> newTypePool = new ConcurrentLinkedQueue<Object>();
+                typePool = pool.putIfAbsent(type, newTypePool);
+                if (typePool == null) {
+                    typePool = newTypePool;
+                }
+            }
+            typePool.add(mock);
+            mock = context.pollRecycledMock();
+        }
+
+        Object sharedMock = context.pollSharedMock();
+        while (sharedMock != null) {
+            Mockito.reset(sharedMock);
+            sharedMock = context.pollSharedMock();
+        }
+    }
+
+    /**
+     * Stops the recycling of the mocks bound in a scope that can outlive a test, like a
+     * {@link com.google.inject.Singleton Singleton}.
+     *
+     * @param binding  A binding of an injector that was just created.
+     * @param provider The mock provider of {@code binding}.
+     */
+    static void excludeIfLongLived(Binding<?> binding, MockProvider<?> provider) {
+        if (isEnabled() && !binding.acceptScopingVisitor(IS_TEST_SCOPED)) {
+            provider.setRecyclable(false);
+        }
+    }
+}
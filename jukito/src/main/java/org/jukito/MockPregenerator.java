@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.Mockito;
+
+/**
+ * Generates the classes of the mocks bound by an injector on a pool of background threads, when
+ * the {@value #PROPERTY} system property is {@code true}. Mockito generates the class of a mock
+ * the first time a mock of its type is created, and then reuses it. Generating the classes in
+ * the background, as soon as the injector is created, takes this work off the first tests.
+ * <p/>
+ * The types listed by the {@link MockTypesManifest} are also submitted, when the first injector is
+ * created. Every type is only submitted once for the whole JVM. Failures are ignored, the test creating
+ * the mock will report them.
+ */
+final class MockPregenerator {
+
+    static final String PROPERTY = "jukito.mocks.pregenerate";
+
+    private static final ConcurrentMap<Class<?>, Boolean> submittedTypes = new ConcurrentHashMap<Class<?>, Boolean>();
+    private static final AtomicBoolean manifestSubmitted = new AtomicBoolean();
+
+    /**
+     * The pool is only created when the first type is submitted.
+     */
+    private static class ExecutorHolder {
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "jukito-mock-pregenerator-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    private MockPregenerator() {
+    }
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    /**
+     * Generates the class of the mocks of {@code type} in the background, unless it was
+     * already submitted.
+     *
+     * @param type The mocked type.
+     */
+    static void submit(Class<?> type) {
+        if (isEnabled()) {
+            pregenerate(type);
+        }
+    }
+
+    /**
+     * Generates the classes of the types listed by the {@link MockTypesManifest} found on the
+     * classpath, the first time it is called. Only called when the system property is set, so that
+     * the classpath is not searched for the manifest otherwise.
+     */
+    static void submitManifest() {
+        if (manifestSubmitted.getAndSet(true)) {
+            return;
+        }
+        ClassLoader classLoader = MockPregenerator.class.getClassLoader();
+        Set<String> mockedTypes;
+        try {
+            mockedTypes = MockTypesManifest.read(classLoader);
+        } catch (IOException e) {
+            return;
+        }
+        for (String mockedType : mockedTypes) {
+            try {
+                pregenerate(Class.forName(mockedType, false, classLoader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                // The manifest is out of date
+            }
+        }
+    }
+
+    private static void pregenerate(final Class<?> type) {
+        if (submittedTypes.putIfAbsent(type, Boolean.TRUE) != null) {
+            return;
+        }
+        ExecutorHolder.EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // Creating a first mock generates its class, which Mockito caches
+                    Mockito.mock(type);
+                } catch (RuntimeException e) {
+                    // The test creating the mock will report the failure
+                }
+            }
+        });
+    }
+
+    /**
+     * @param type A mocked type.
+     * @return {@code true} if the class of the mocks of {@code type} was submitted for generation.
+     */
+    static boolean isSubmitted(Class<?> type) {
+        return submittedTypes.containsKey(type);
+    }
+}
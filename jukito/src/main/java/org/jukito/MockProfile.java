@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import org.mockito.MockSettings;
+import org.mockito.mock.MockCreationSettings;
+
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The settings of the mocks automatically bound by a {@link JukitoModule}. Choose the profile
+ * with {@link UseModules#mockProfile()}, or by overriding {@link JukitoModule#getMockProfile()}.
+ * Mocks bound explicitly, for example with {@link TestModule#bindMock(Class)}, always use
+ * the {@link #DEFAULT} profile.
+ * <p/>
+ * Depends on Mockito.
+ */
+public enum MockProfile {
+
+    /**
+     * Regular mocks, that record their invocations so that they can be verified. The number of
+     * invocations they keep can be bounded, see {@link InvocationHistory}.
+     */
+    DEFAULT {
+        @Override
+        MockSettings createSettings() {
+            return InvocationHistory.bound(withSettings());
+        }
+    },
+
+    /**
+     * Mocks created with {@link MockSettings#stubOnly()}. They can be stubbed but do not record
+     * their invocations, which saves memory and time in tests that call them a lot. Passing
+     * such a mock to {@link org.mockito.Mockito#verify(Object) verify} fails with a
+     * {@link org.mockito.exceptions.misusing.CannotVerifyStubOnlyMock CannotVerifyStubOnlyMock}
+     * naming the mock; bind it with {@link TestModule#bindMock(Class)} to verify it.
+     */
+    STUB_ONLY {
+        @Override
+        MockSettings createSettings() {
+            return withSettings().stubOnly();
+        }
+    };
+
+    /**
+     * @return New settings to create a mock with this profile.
+     */
+    abstract MockSettings createSettings();
+
+    /**
+     * @param settings The settings a mock was created with.
+     * @return The profile of the mock.
+     */
+    static MockProfile of(MockCreationSettings<?> settings) {
+        return settings.isStubOnly() ? STUB_ONLY : DEFAULT;
+    }
+}
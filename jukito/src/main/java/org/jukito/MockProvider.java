@@ -26,6 +26,10 @@ import static org.mockito.Mockito.mock;
  * <p/>
  * A new object is returned each the the provider is invoked, unless the object
  * is bound as a {@link TestScope#SINGLETON} or {@link TestScope#EAGER_SINGLETON}.
+ * When mock recycling is enabled, the objects are taken from the {@link MockPool}. When
+ * lazy mocks are enabled, mocks of interfaces are only created when first used, see {@link LazyMock}.
+ * The mocks are created with the settings of a {@link MockProfile}, and the number of invocations
+ * they keep can be bounded, see {@link InvocationHistory}.
  * <p/>
  * Depends on Mockito.
  *
@@ -34,6 +38,9 @@ import static org.mockito.Mockito.mock;
 public class MockProvider<T> implements Provider<T> {
 
     private final Class<T> classToProvide;
+    private final MockProfile profile;
+    private final boolean lazy;
+    private volatile boolean recyclable = MockPool.isEnabled();
 
     /**
      * Construct a {@link Provider} that will return mocked objects of the specified types.
@@ -41,11 +48,52 @@ public class MockProvider<T> implements Provider<T> {
      * @param classToProvide The {@link Class} of the mock object to provide.
      */
     public MockProvider(Class<T> classToProvide) {
+        this(classToProvide, MockProfile.DEFAULT);
+    }
+
+    /**
+     * Construct a {@link Provider} that will return mocked objects of the specified types,
+     * created with the settings of a {@link MockProfile}.
+     *
+     * @param classToProvide The {@link Class} of the mock object to provide.
+     * @param profile        The profile of the mocks.
+     */
+    public MockProvider(Class<T> classToProvide, MockProfile profile) {
         this.classToProvide = classToProvide;
+        this.profile = profile;
+        lazy = classToProvide.isInterface() && LazyMock.isEnabled();
     }
 
     @Override
     public T get() {
-        return mock(classToProvide);
+        if (lazy) {
+            T placeholder = LazyMock.create(classToProvide, this);
+            if (placeholder != null) {
+                return placeholder;
+            }
+        }
+        return createMock();
+    }
+
+    /**
+     * @return A new mock, or a mock taken from the {@link MockPool}.
+     */
+    T createMock() {
+        if (recyclable) {
+            return MockPool.acquire(classToProvide, profile);
+        }
+        return mock(classToProvide, profile.createSettings());
+    }
+
+    Class<T> getClassToProvide() {
+        return classToProvide;
+    }
+
+    /**
+     * @param recyclable {@code false} if the mocks must not be taken from the {@link MockPool},
+     *                   because they can outlive a test.
+     */
+    void setRecyclable(boolean recyclable) {
+        this.recyclable = recyclable;
     }
 }
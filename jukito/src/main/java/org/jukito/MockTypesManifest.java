@@ -0,0 +1,227 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.runner.RunWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Lists the types that Jukito mocks for the test classes of a project, so that the classes of
+ * the mocks can be generated as soon as the first test class of a test JVM starts, see
+ * {@link MockPregenerator}.
+ * <p/>
+ * <b>The manifest is only a list of type names.</b> No mock class is generated or persisted at
+ * build time, since Mockito cannot load mock classes generated ahead of time. Only the discovery of
+ * the mocked types moves to the build, the classes are still generated in the test JVM, in the
+ * background, when the {@value MockPregenerator#PROPERTY} system property is {@code true}.
+ * <p/>
+ * The manifest is written to {@value #MANIFEST} in the test classes directory by running this
+ * class after the tests are compiled. A project using Jukito can do so in the
+ * {@code process-test-classes} phase with the exec-maven-plugin:
+ * <pre>
+ * &lt;plugin&gt;
+ *     &lt;groupId&gt;org.codehaus.mojo&lt;/groupId&gt;
+ *     &lt;artifactId&gt;exec-maven-plugin&lt;/artifactId&gt;
+ *     &lt;executions&gt;
+ *         &lt;execution&gt;
+ *             &lt;id&gt;mock-types-manifest&lt;/id&gt;
+ *             &lt;phase&gt;process-test-classes&lt;/phase&gt;
+ *             &lt;goals&gt;
+ *                 &lt;goal&gt;java&lt;/goal&gt;
+ *             &lt;/goals&gt;
+ *             &lt;configuration&gt;
+ *                 &lt;mainClass&gt;org.jukito.MockTypesManifest&lt;/mainClass&gt;
+ *                 &lt;classpathScope&gt;test&lt;/classpathScope&gt;
+ *                 &lt;arguments&gt;
+ *                     &lt;argument&gt;${project.build.testOutputDirectory}&lt;/argument&gt;
+ *                 &lt;/arguments&gt;
+ *             &lt;/configuration&gt;
+ *         &lt;/execution&gt;
+ *     &lt;/executions&gt;
+ * &lt;/plugin&gt;</pre>
+ * The {@code jukito} and {@code jukito-samples} modules declare this plugin in their
+ * {@code pregenerate-mocks} profile, active when the property is {@code true}:
+ * <pre>
+ * mvn test -Djukito.mocks.pregenerate=true</pre>
+ */
+public final class MockTypesManifest {
+
+    static final String MANIFEST = "META-INF/jukito/mock-types";
+
+    private static final String ENCODING = "UTF-8";
+    private static final String JUKITO_EXTENSION = "org.jukito.JukitoExtension";
+
+    private MockTypesManifest() {
+    }
+
+    /**
+     * Writes the manifest of the types mocked for the test classes of a directory.
+     *
+     * @param args The directory of the compiled test classes, and optionally the manifest file
+     *             to write, {@value #MANIFEST} in that directory by default.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            throw new IllegalArgumentException("Usage: MockTypesManifest <test classes directory> [manifest file]");
+        }
+        File directory = new File(args[0]);
+        File manifest = args.length > 1 ? new File(args[1]) : new File(directory, MANIFEST);
+
+        List<Class<?>> testClasses = new ArrayList<>();
+        findTestClasses(directory, "", Thread.currentThread().getContextClassLoader(), testClasses);
+        write(findMockedTypes(testClasses), manifest);
+    }
+
+    /**
+     * @param testClasses The test classes.
+     * @return The names of the types mocked for {@code testClasses}, sorted.
+     */
+    static Set<String> findMockedTypes(Iterable<Class<?>> testClasses) {
+        Set<String> mockedTypes = new TreeSet<>();
+        for (Class<?> testClass : testClasses) {
+            Injector injector;
+            try {
+                TestModule testModule = TestModules.getTestModule(testClass);
+                testModule.setTestClass(testClass);
+                TestModules.observeBindings(testModule);
+                injector = Guice.createInjector(testModule);
+            } catch (Exception e) {
+                // The test class will report the error when it runs
+                continue;
+            }
+            for (MockProvider<?> mockProvider : TestModules.findMockProviders(injector).values()) {
+                mockedTypes.add(mockProvider.getClassToProvide().getName());
+            }
+        }
+        return mockedTypes;
+    }
+
+    /**
+     * @param classLoader The class loader to look into.
+     * @return The names of the types listed in every manifest found by {@code classLoader}.
+     */
+    static Set<String> read(ClassLoader classLoader) throws IOException {
+        Set<String> mockedTypes = new TreeSet<>();
+        Enumeration<URL> manifests = classLoader.getResources(MANIFEST);
+        while (manifests.hasMoreElements()) {
+            InputStream inputStream = manifests.nextElement().openStream();
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, ENCODING));
+                String line = reader.readLine();
+                while (line != null) {
+                    if (line.trim().length() > 0) {
+                        mockedTypes.add(line.trim());
+                    }
+                    line = reader.readLine();
+                }
+            } finally {
+                inputStream.close();
+            }
+        }
+        return mockedTypes;
+    }
+
+    static void write(Set<String> mockedTypes, File manifest) throws IOException {
+        File parent = manifest.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(manifest), ENCODING);
+        try {
+            for (String mockedType : mockedTypes) {
+                writer.write(mockedType);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void findTestClasses(File directory, String packagePrefix, ClassLoader classLoader,
+            List<Class<?>> testClasses) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                findTestClasses(file, packagePrefix + name + ".", classLoader, testClasses);
+            } else if (name.endsWith(".class")) {
+                try {
+                    Class<?> klass = Class.forName(packagePrefix + name.substring(0, name.length() - 6), false,
+                            classLoader);
+                    if (isJukitoTestClass(klass)) {
+                        testClasses.add(klass);
+                    }
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // Not a class that can be tested
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if {@code klass} runs with the {@link JukitoRunner}, or with the JUnit
+     *         Jupiter extension of Jukito.
+     */
+    private static boolean isJukitoTestClass(Class<?> klass) {
+        RunWith runWith = klass.getAnnotation(RunWith.class);
+        if (runWith != null) {
+            return JukitoRunner.class.isAssignableFrom(runWith.value());
+        }
+        for (Annotation annotation : klass.getAnnotations()) {
+            if ("org.junit.jupiter.api.extension.ExtendWith".equals(annotation.annotationType().getName())) {
+                try {
+                    Method value = annotation.annotationType().getMethod("value");
+                    for (Class<?> extension : (Class<?>[]) value.invoke(annotation)) {
+                        if (JUKITO_EXTENSION.equals(extension.getName())) {
+                            return true;
+                        }
+                    }
+                } catch (NoSuchMethodException e) {
+                    return false;
+                } catch (IllegalAccessException e) {
+                    return false;
+                } catch (InvocationTargetException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
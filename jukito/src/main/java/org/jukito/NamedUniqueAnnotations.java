@@ -18,7 +18,6 @@ package org.jukito;
 
 import java.lang.annotation.Annotation;
 import java.lang.annotation.Retention;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.inject.BindingAnnotation;
 
@@ -26,51 +25,66 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 /**
  * Factory for unique annotations with a name. Based on {@link com.google.inject.internal.UniqueAnnotations}.
+ * <p/>
+ * The annotations are derived from the class of the module declaring the binding, the name and the
+ * position of the binding among those of the same type and name declared by the modules of that class
+ * in the injector, rather than from a global counter.
+ * The keys of the bindings, and so the names of the combinations of {@literal @}{@link All} bindings,
+ * are the same in every run, whatever the test modules configured before in the JVM.
  */
 class NamedUniqueAnnotations {
-    private static final AtomicInteger nextUniqueValue = new AtomicInteger(1);
 
     /**
-     * Returns if a NamedUniqueAnnotations matches a binding name.
+     * Returns the name of a NamedUniqueAnnotations.
      *
-     * @param bindingName the name to match.
-     * @param annotation  the annotation to match the name to.
-     * @return if the annotation matches the bindingName.
+     * @param annotation the annotation of a binding.
+     * @return the name of the annotation, or {@code null} if it is not a NamedUniqueAnnotations.
      */
-    public static boolean matches(String bindingName, java.lang.annotation.Annotation annotation) {
+    public static String getName(Annotation annotation) {
         if (annotation instanceof Internal) {
-            return ((Internal) annotation).name().equals(bindingName);
+            return ((Internal) annotation).name();
         }
-        return false;
+        return null;
     }
 
     /**
-     * Returns an annotation instance that is not equal to any other annotation
-     * instances, for use in creating distinct {@link com.google.inject.Key}s.
+     * Returns an annotation instance that is not equal to the annotations of the other bindings of
+     * the same type in an injector, for use in creating distinct {@link com.google.inject.Key}s.
      *
-     * @param name name to group multiple annotations. Each annotation is still unique even if it belongs to a group.
+     * @param module   the class of the module declaring the binding.
+     * @param name     name to group multiple annotations. Each annotation is still unique even if it belongs
+     *                 to a group.
+     * @param position the position of the binding among the bindings of the same type and name declared
+     *                 by the modules of class {@code module} in the injector.
      */
-    public static Annotation create(String name) {
-        int unique = nextUniqueValue.getAndIncrement();
+    public static Annotation create(Class<?> module, String name, int position) {
         String nonNullName = name == null ? All.DEFAULT : name;
-        return new InternalImpl(unique, nonNullName);
+        return new InternalImpl(module.getName(), nonNullName, position);
     }
 
     @Retention(RUNTIME)
     @BindingAnnotation
     private @interface Internal {
+        String module();
+
         String name();
 
         int value();
     }
 
     private static class InternalImpl implements Internal {
-        private final int value;
+        private final String module;
         private final String name;
+        private final int value;
 
-        InternalImpl(int value, String name) {
-            this.value = value;
+        InternalImpl(String module, String name, int value) {
+            this.module = module;
             this.name = name;
+            this.value = value;
+        }
+
+        public String module() {
+            return module;
         }
 
         public int value() {
@@ -87,7 +101,7 @@ class NamedUniqueAnnotations {
 
         @Override
         public String toString() {
-            return "@" + Internal.class.getName() + "(name=" + name + ", value=" + value + ")";
+            return "@" + Internal.class.getName() + "(module=" + module + ", name=" + name + ", value=" + value + ")";
         }
 
         @Override
@@ -97,14 +111,17 @@ class NamedUniqueAnnotations {
             }
             if (o instanceof Internal) {
                 Internal other = (Internal) o;
-                return value() == other.value() && name().equals(other.name());
+                return value() == other.value() && name().equals(other.name()) && module().equals(other.module());
             }
             return false;
         }
 
         @Override
         public int hashCode() {
-            return (127 * name.hashCode()) ^ value;
+            // As specified by Annotation#hashCode()
+            return ((127 * "module".hashCode()) ^ module.hashCode())
+                    + ((127 * "name".hashCode()) ^ name.hashCode())
+                    + ((127 * "value".hashCode()) ^ value);
         }
     }
 }
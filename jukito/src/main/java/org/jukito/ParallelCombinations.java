@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Method;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.FrameworkMethod;
+
+/**
+ * Runs the combinations of {@literal @}{@link All} bindings of the test methods annotated with
+ * {@literal @}{@link JukitoParallel} in parallel, for a {@link JukitoRunner} whose children run
+ * sequentially. The combinations of such a method are scheduled as the runner reaches them, each
+ * reporting to a {@link RecordingNotifier}. The events of a combination are replayed on the notifier
+ * of the runner as soon as it and all the combinations scheduled before it are finished, so that
+ * they are reported in order without keeping the events of the whole method. Once the runner reaches
+ * another test method, or the end of its children, the remaining combinations are awaited.
+ */
+class ParallelCombinations {
+
+    private final JukitoRunner runner;
+    private final Queue<RecordingNotifier> recorders = new LinkedList<RecordingNotifier>();
+    private Method method;
+    private ParallelScheduler scheduler;
+
+    ParallelCombinations(JukitoRunner runner) {
+        this.runner = runner;
+    }
+
+    /**
+     * @param child    A child of the runner.
+     * @param notifier The notifier of the runner.
+     * @return {@code true} if {@code child} was scheduled, {@code false} if it must run right away.
+     */
+    boolean schedule(final FrameworkMethod child, final RunNotifier notifier) {
+        if (child.getMethod() != method) {
+            finish(notifier);
+            method = child.getMethod();
+            scheduler = ParallelScheduler.forTestMethod(method);
+        }
+        if (scheduler == null) {
+            return false;
+        }
+
+        final RecordingNotifier recorder = new RecordingNotifier();
+        recorder.addListener(new MockitoUsageValidator(recorder));
+        synchronized (this) {
+            recorders.add(recorder);
+        }
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runner.runChildInContext(child, recorder);
+                } finally {
+                    recorder.finish();
+                    replay(notifier, false);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Waits for the scheduled combinations and replays the events that are left on {@code notifier}.
+     *
+     * @param notifier The notifier of the runner.
+     */
+    void finish(RunNotifier notifier) {
+        if (scheduler == null) {
+            return;
+        }
+        try {
+            scheduler.finished();
+        } finally {
+            replay(notifier, true);
+            method = null;
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Replays the events of the finished combinations at the head of the queue, in order.
+     *
+     * @param notifier The notifier of the runner.
+     * @param all      {@code true} to also replay the combinations that are not finished.
+     */
+    private synchronized void replay(RunNotifier notifier, boolean all) {
+        RecordingNotifier recorder = recorders.peek();
+        while (recorder != null && (all || recorder.isFinished())) {
+            recorders.remove();
+            recorder.replay(notifier);
+            recorder = recorders.peek();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.runners.model.MultipleFailureException;
+import org.junit.runners.model.RunnerScheduler;
+
+/**
+ * Schedules the children of a {@link JukitoRunner} on a bounded pool of daemon threads,
+ * and waits for all of them to finish. The pool is created when the first child is
+ * scheduled and shut down once they are all finished, so every run gets its own pool.
+ * <p/>
+ * Also used by {@link ParallelCombinations} to run the combinations of a single test method.
+ * <p/>
+ * With virtual threads, every child runs on its own new virtual thread instead, and
+ * the number of threads is an optional limit on the children running at the same
+ * time. On a JVM without virtual threads, new daemon platform threads are used, and a
+ * warning is logged.
+ */
+class ParallelScheduler implements RunnerScheduler {
+
+    private static final Logger logger = Logger.getLogger(ParallelScheduler.class.getName());
+
+    private final String name;
+    private final int threads;
+    private final boolean virtualThreads;
+    private final Semaphore permits;
+    private final List<Future<?>> futures = new ArrayList<Future<?>>();
+    private ExecutorService executor;
+
+    ParallelScheduler(String name, int threads) {
+        this(name, threads, false);
+    }
+
+    /**
+     * @param name           The prefix of the names of the threads.
+     * @param threads        The number of threads, with virtual threads the number of children
+     *                       running at the same time or {@code 0} if there is no limit.
+     * @param virtualThreads {@code true} to run every child on its own virtual thread.
+     */
+    ParallelScheduler(String name, int threads, boolean virtualThreads) {
+        this.name = name;
+        this.threads = threads;
+        this.virtualThreads = virtualThreads;
+        permits = virtualThreads && threads > 0 ? new Semaphore(threads) : null;
+    }
+
+    /**
+     * @param testClass The test class.
+     * @return The scheduler to run the test methods of {@code testClass} with, or {@code null}
+     *         if they must run sequentially.
+     */
+    static ParallelScheduler forTestClass(Class<?> testClass) {
+        if (useVirtualThreads(testClass)) {
+            return new ParallelScheduler(testClass.getSimpleName(), getConfiguredThreads(testClass), true);
+        }
+        int threads = getThreads(testClass);
+        return threads > 1 ? new ParallelScheduler(testClass.getSimpleName(), threads) : null;
+    }
+
+    /**
+     * @param testMethod The test method.
+     * @return The scheduler to run the combinations of {@literal @}{@link All} bindings of
+     *         {@code testMethod} with, or {@code null} if they must run sequentially.
+     */
+    static ParallelScheduler forTestMethod(Method testMethod) {
+        JukitoParallel parallel = testMethod.getAnnotation(JukitoParallel.class);
+        if (parallel == null) {
+            return null;
+        }
+        int threads = checkThreads(parallel.threads(), testMethod.toString());
+        if (parallel.virtualThreads()) {
+            return new ParallelScheduler(testMethod.getName(), threads, true);
+        }
+        return new ParallelScheduler(testMethod.getName(),
+                threads == 0 ? Runtime.getRuntime().availableProcessors() : threads);
+    }
+
+    /**
+     * @param testClass The test class.
+     * @return The number of threads to run the test methods of {@code testClass} on, {@code 1}
+     *         if they must run sequentially.
+     */
+    static int getThreads(Class<?> testClass) {
+        String property = System.getProperty(JukitoParallel.PROPERTY);
+        if (testClass.getAnnotation(JukitoParallel.class) == null
+                && (property == null || property.trim().length() == 0)) {
+            return 1;
+        }
+        int threads = getConfiguredThreads(testClass);
+        return threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    /**
+     * @param testClass The test class.
+     * @return {@code true} if the test methods of {@code testClass} must each run on their own
+     *         virtual thread.
+     */
+    static boolean useVirtualThreads(Class<?> testClass) {
+        JukitoParallel parallel = testClass.getAnnotation(JukitoParallel.class);
+        if (parallel != null) {
+            return parallel.virtualThreads();
+        }
+        return Boolean.getBoolean(JukitoParallel.VIRTUAL_THREADS_PROPERTY);
+    }
+
+    private static int getConfiguredThreads(Class<?> testClass) {
+        JukitoParallel parallel = testClass.getAnnotation(JukitoParallel.class);
+        int threads;
+        if (parallel != null) {
+            threads = parallel.threads();
+        } else {
+            String property = System.getProperty(JukitoParallel.PROPERTY);
+            if (property == null || property.trim().length() == 0) {
+                return 0;
+            }
+            try {
+                threads = Integer.parseInt(property.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("The system property " + JukitoParallel.PROPERTY
+                        + " must be a number of threads, got: " + property, e);
+            }
+        }
+        return checkThreads(threads, testClass.getName());
+    }
+
+    private static int checkThreads(int threads, String description) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("The number of threads of " + description
+                    + " cannot be negative: " + threads);
+        }
+        return threads;
+    }
+
+    @Override
+    public void schedule(Runnable childStatement) {
+        if (executor == null) {
+            executor = virtualThreads ? createVirtualThreadExecutor() : createExecutor();
+        }
+        futures.add(executor.submit(permits == null ? childStatement : withPermit(childStatement)));
+    }
+
+    /**
+     * Waits for all the children, even when some of them failed, so that none is interrupted while
+     * it runs. The pool is only shut down once they are all finished, or if the wait is interrupted.
+     */
+    @Override
+    public void finished() {
+        List<Throwable> failures = new ArrayList<Throwable>();
+        try {
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            futures.clear();
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+        if (failures.size() == 1) {
+            throw new RuntimeException(failures.get(0));
+        } else if (failures.size() > 1) {
+            throw new RuntimeException(new MultipleFailureException(failures));
+        }
+    }
+
+    /**
+     * Waits for a permit before starting a new thread, so that no more than the limit of
+     * children are started, and releases it once the child is finished.
+     */
+    private Runnable withPermit(final Runnable childStatement) {
+        permits.acquireUninterruptibly();
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    childStatement.run();
+                } finally {
+                    permits.release();
+                }
+            }
+        };
+    }
+
+    private ExecutorService createExecutor() {
+        return Executors.newFixedThreadPool(threads, createThreadFactory());
+    }
+
+    /**
+     * Virtual threads are looked-up reflectively so that Jukito still runs on JVMs without them.
+     */
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return createPlatformThreadPerTaskExecutor();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to create virtual threads.", e);
+        } catch (InvocationTargetException e) {
+            // Virtual threads are a preview feature that is not enabled
+            return createPlatformThreadPerTaskExecutor();
+        }
+    }
+
+    private ExecutorService createPlatformThreadPerTaskExecutor() {
+        logger.warning("Virtual threads are not available on this JVM, " + name
+                + " runs on new platform threads instead.");
+        return Executors.newCachedThreadPool(createThreadFactory());
+    }
+
+    private ThreadFactory createThreadFactory() {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+
+/**
+ * A {@link RunNotifier} that records the events of a test running on another thread, so that
+ * they can be replayed later on the real notifier, in a deterministic order. The events are
+ * also fired to the listeners of this notifier, like the {@link MockitoUsageValidator}.
+ */
+class RecordingNotifier extends RunNotifier {
+
+    private abstract static class Event {
+        abstract void replay(RunNotifier notifier);
+    }
+
+    private final List<Event> events = new ArrayList<Event>();
+    private boolean finished;
+
+    @Override
+    public void fireTestStarted(final Description description) {
+        record(new Event() {
+            @Override
+            void replay(RunNotifier notifier) {
+                notifier.fireTestStarted(description);
+            }
+        });
+        super.fireTestStarted(description);
+    }
+
+    @Override
+    public void fireTestFailure(final Failure failure) {
+        record(new Event() {
+            @Override
+            void replay(RunNotifier notifier) {
+                notifier.fireTestFailure(failure);
+            }
+        });
+        super.fireTestFailure(failure);
+    }
+
+    @Override
+    public void fireTestAssumptionFailed(final Failure failure) {
+        record(new Event() {
+            @Override
+            void replay(RunNotifier notifier) {
+                notifier.fireTestAssumptionFailed(failure);
+            }
+        });
+        super.fireTestAssumptionFailed(failure);
+    }
+
+    @Override
+    public void fireTestIgnored(final Description description) {
+        record(new Event() {
+            @Override
+            void replay(RunNotifier notifier) {
+                notifier.fireTestIgnored(description);
+            }
+        });
+        super.fireTestIgnored(description);
+    }
+
+    @Override
+    public void fireTestFinished(final Description description) {
+        record(new Event() {
+            @Override
+            void replay(RunNotifier notifier) {
+                notifier.fireTestFinished(description);
+            }
+        });
+        super.fireTestFinished(description);
+    }
+
+    private synchronized void record(Event event) {
+        events.add(event);
+    }
+
+    /**
+     * Marks the test as finished, no more events will be recorded.
+     */
+    synchronized void finish() {
+        finished = true;
+    }
+
+    /**
+     * @return {@code true} if the test is finished.
+     */
+    synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Fires the recorded events on {@code notifier}, in the order they were recorded.
+     *
+     * @param notifier The real notifier.
+     */
+    synchronized void replay(RunNotifier notifier) {
+        for (Event event : events) {
+            event.replay(notifier);
+        }
+        events.clear();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation can be used on a test method with parameters annotated with
+ * {@literal @}{@link All} to bound the number of combinations of bindings it runs with.
+ * When there are more than {@link #max()} combinations, a random subset of them is used,
+ * always the same for the same {@link #seed()}. Combined with
+ * {@literal @}{@link Combinations}, the subset is drawn from the reduced combinations.
+ * <p/>
+ * Example:
+ * <pre>
+ * {@literal @}Test
+ * {@literal @}SampleCombinations(max = 200, seed = 42)
+ * public void someTest({@literal @}All Order order, {@literal @}All Customer customer) {
+ * }</pre>
+ *
+ * The seed of every test method can be overridden with the {@value #SEED_PROPERTY} system
+ * property. Setting the {@value #FULL_PROPERTY} system property to {@code true} runs every
+ * combination instead, ignoring this annotation and {@literal @}{@link Combinations}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SampleCombinations {
+
+    /**
+     * The system property giving the seed to use instead of {@link #seed()}.
+     */
+    String SEED_PROPERTY = "jukito.combinations.seed";
+
+    /**
+     * The system property that, when {@code true}, runs every combination of bindings.
+     */
+    String FULL_PROPERTY = "jukito.combinations.full";
+
+    /**
+     * The maximum number of combinations to run the test method with.
+     */
+    int max();
+
+    /**
+     * The seed of the random subset of combinations.
+     */
+    long seed() default 0;
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import com.google.inject.Provider;
+
+/**
+ * For use in classes where you want the same spy of an instance in every test, see
+ * {@link TestModule#bindSharedSpy(Class, Object)}. The spy is created the first time it is
+ * provided, and reset with {@link org.mockito.Mockito#reset reset} at the end of every test
+ * that used it, so that its stubbings and invocations do not leak into the next test.
+ * <p/>
+ * <b>Important:</b> Spied object needs to be Immutable, and the tests using the spy must not run
+ * at the same time.
+ *
+ * @param <T> The class to provide.
+ */
+class SharedSpyProvider<T> implements Provider<T> {
+    private final T instance;
+    private volatile T spy;
+
+    /**
+     * @param instance The instance to spy.
+     */
+    SharedSpyProvider(T instance) {
+        this.instance = instance;
+    }
+
+    @Override
+    public T get() {
+        T result = spy;
+        if (result == null) {
+            synchronized (this) {
+                result = spy;
+                if (result == null) {
+                    result = SpyFactory.spy(instance);
+                    spy = result;
+                }
+            }
+        }
+        TestScope.getContext().addSharedMock(result);
+        return result;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.mockito.Mockito;
+
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Creates the spies of the {@link SpyProvider}, {@link SpyImmutableInstanceProvider} and
+ * {@link SharedSpyProvider}. Like {@link Mockito#spy(Object)}, the fields of the spied instance
+ * are copied into a new mock calling the real methods, but the fields to copy are only looked-up
+ * and made accessible once per type. Mockito already caches the generated class of the spies.
+ * <p/>
+ * When a field cannot be made accessible, for example in a class of the JDK, the spy is created
+ * by Mockito instead. The number of invocations kept by the spies can be bounded, see
+ * {@link InvocationHistory}.
+ */
+final class SpyFactory {
+
+    /**
+     * Copies the instance fields of a type, including the inherited ones.
+     */
+    private static class FieldCopier {
+        private final Field[] fields;
+
+        FieldCopier(Field[] fields) {
+            this.fields = fields;
+        }
+
+        void copy(Object from, Object to) throws IllegalAccessException {
+            for (Field field : fields) {
+                field.set(to, field.get(from));
+            }
+        }
+    }
+
+    private static final FieldCopier NO_COPIER = new FieldCopier(new Field[0]);
+
+    private static final ConcurrentMap<Class<?>, FieldCopier> copiers =
+            new ConcurrentHashMap<Class<?>, FieldCopier>();
+
+    private SpyFactory() {
+    }
+
+    /**
+     * Same as {@link Mockito#spy(Object)}, bounding the invocations kept if there is a limit.
+     *
+     * @param instance The instance to spy.
+     * @return A spy of {@code instance}.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T spy(T instance) {
+        Class<T> type = (Class<T>) instance.getClass();
+        FieldCopier copier = getCopier(type);
+        if (copier != NO_COPIER) {
+            T spy = Mockito.mock(type, InvocationHistory.bound(withSettings().defaultAnswer(CALLS_REAL_METHODS)));
+            try {
+                copier.copy(instance, spy);
+                return spy;
+            } catch (IllegalAccessException e) {
+                // A final field that cannot be written, let Mockito copy this type from now on
+                copiers.put(type, NO_COPIER);
+            }
+        }
+        return Mockito.mock(type,
+                InvocationHistory.bound(withSettings().spiedInstance(instance).defaultAnswer(CALLS_REAL_METHODS)));
+    }
+
+    private static FieldCopier getCopier(Class<?> type) {
+        FieldCopier copier = copiers.get(type);
+        if (copier == null) {
+            copier = createCopier(type);
+            FieldCopier previous = copiers.putIfAbsent(type, copier);
+            if (previous != null) {
+                copier = previous;
+            }
+        }
+        return copier;
+    }
+
+    private static FieldCopier createCopier(Class<?> type) {
+        List<Field> fields = new ArrayList<Field>();
+        Class<?> currentClass = type;
+        while (currentClass != Object.class) {
+            for (Field field : currentClass.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    try {
+                        field.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        // Not accessible, for example in a module that is not open
+                        return NO_COPIER;
+                    }
+                    fields.add(field);
+                }
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+        return new FieldCopier(fields.toArray(new Field[fields.size()]));
+    }
+}
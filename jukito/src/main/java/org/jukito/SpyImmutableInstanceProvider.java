@@ -16,8 +16,6 @@
 
 package org.jukito;
 
-import org.mockito.Mockito;
-
 import com.google.inject.Provider;
 
 /**
@@ -51,6 +49,6 @@ class SpyImmutableInstanceProvider<T> implements Provider<T> {
      */
     @Override
     public T get() {
-        return Mockito.spy(instance);
+        return SpyFactory.spy(instance);
     }
 }
@@ -24,14 +24,13 @@ import com.google.inject.Provider;
 import com.google.inject.spi.Dependency;
 import com.google.inject.spi.HasDependencies;
 
-import static org.mockito.Mockito.spy;
-
 /**
  * For use in test cases where an {@link Provider} is required to provide an
  * object and the test case needs to provide a spy of the object.
  * <p/>
  * A new object is returned each the the provider is invoked, unless the object
  * is bound as a {@link TestScope#SINGLETON} or {@link TestScope#EAGER_SINGLETON}.
+ * The spies are created by the {@link SpyFactory}.
  * <p/>
  * Depends on Mockito.
  *
@@ -59,7 +58,7 @@ class SpyProvider<T> implements Provider<T>, HasDependencies {
 
     @Override
     public T get() {
-        return spy(rawProvider.get());
+        return SpyFactory.spy(rawProvider.get());
     }
 
     @Override
@@ -16,7 +16,12 @@
 
 package org.jukito;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Key;
@@ -34,10 +39,28 @@ import com.google.inject.spi.InjectionPoint;
  */
 public abstract class TestModule extends AbstractModule {
 
+    /**
+     * The number of bindings of {@link #bindMany} and {@link #bindManyInstances} declared so far by
+     * every module class, by type and name, while the outermost test module is configured.
+     */
+    private static final ThreadLocal<Map<List<Object>, Integer>> manyBindingCounts = new ThreadLocal<>();
+
+    /**
+     * The test class of this module, see {@link #setTestClass(Class)}.
+     */
     protected Class<?> testClass;
 
+    /**
+     * The counts of this module when it is configured outside of {@link #configureTestBindings()}.
+     */
+    private final Map<List<Object>, Integer> ownManyBindingCounts = new HashMap<>();
+
     /**
      * Attach the {@link TestModule} to a given test class.
+     * <p/>
+     * When the {@code jukito.injector.cache} system property is {@code true}, the test classes
+     * with the same modules share their injector, so the bindings must not depend on the test
+     * class, apart from the keys it needs. Such a module must not be used with the cache.
      *
      * @param testClass The test class to attach to this {@link TestModule}.
      */
@@ -48,7 +71,45 @@ public abstract class TestModule extends AbstractModule {
     @Override
     public void configure() {
         bindScopes();
-        configureTest();
+        configureTestBindings();
+    }
+
+    /**
+     * Calls {@link #configureTest()}. The outermost test module being configured owns the counts of
+     * the bindings of {@link #bindMany} and {@link #bindManyInstances}, and starts them from zero
+     * every time it is configured. The test modules it installs, including other instances of its
+     * own class, share these counts, so their annotations are distinct within the injector and the
+     * same every time the module is configured.
+     */
+    void configureTestBindings() {
+        boolean outermost = manyBindingCounts.get() == null;
+        if (outermost) {
+            manyBindingCounts.set(new HashMap<>());
+        }
+        try {
+            configureTest();
+        } finally {
+            if (outermost) {
+                manyBindingCounts.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The annotation of the next binding of {@code type} with {@code name}, derived from the
+     *         class of this module, the name and the number of such bindings already declared by the
+     *         modules of this class.
+     */
+    private Annotation nextManyBindingAnnotation(TypeLiteral<?> type, String name) {
+        Map<List<Object>, Integer> counts = manyBindingCounts.get();
+        if (counts == null) {
+            counts = ownManyBindingCounts;
+        }
+        List<Object> key = Arrays.<Object>asList(getClass(), type, name == null ? All.DEFAULT : name);
+        Integer count = counts.get(key);
+        int position = count == null ? 0 : count;
+        counts.put(key, position + 1);
+        return NamedUniqueAnnotations.create(getClass(), name, position);
     }
 
     protected void bindScopes() {
@@ -87,6 +148,21 @@ public abstract class TestModule extends AbstractModule {
         return bindNewMockProvider(Key.get(typeLiteral));
     }
 
+    /**
+     * Binds an interface to a fast stub, a plain implementation answering each method with a
+     * value declared on the returned {@link FastStubBuilder}. Unlike a mock, a fast stub does not
+     * match arguments nor record invocations, so it is much cheaper to call a lot of times, but
+     * it cannot be verified. You will usually want to bind this in the {@link TestSingleton} scope.
+     *
+     * @param <T>   The type of the interface to bind
+     * @param klass The interface to bind
+     * @return A {@link FastStubBuilder} to declare the answers and the scope.
+     */
+    protected <T> FastStubBuilder<T> bindFastStub(Class<T> klass) {
+        FastStubProvider<T> provider = new FastStubProvider<T>(klass);
+        return new FastStubBuilder<T>(provider, bind(klass).toProvider(provider));
+    }
+
     /**
      * Binds a concrete object type so that spies of instances are returned
      * instead of instances themselves. You will usually want to bind this in the
@@ -150,6 +226,36 @@ public abstract class TestModule extends AbstractModule {
         return bindNewSpyImmutableInstanceProvider(Key.get(typeLiteral), instance);
     }
 
+    /**
+     * Binds a concrete instance so that the same spy of this instance is returned in every test,
+     * instead of creating a new spy for each test. The spy is reset at the end of every test that
+     * used it, but the underlying instance is never copied again, so it must be immutable. The tests
+     * using the spy must not run in parallel.
+     *
+     * @param <T>      The type of the interface to bind
+     * @param klass    The class to bind
+     * @param instance The instance to bind this class to.
+     * @return A {@link ScopedBindingBuilder}.
+     */
+    protected <T> ScopedBindingBuilder bindSharedSpy(Class<T> klass, T instance) {
+        return bindNewSharedSpyProvider(Key.get(klass), instance);
+    }
+
+    /**
+     * Binds a concrete instance so that the same spy of this instance is returned in every test,
+     * instead of creating a new spy for each test. The spy is reset at the end of every test that
+     * used it, but the underlying instance is never copied again, so it must be immutable. The tests
+     * using the spy must not run in parallel.
+     *
+     * @param <T>         The type of the interface to bind, a parameterized type
+     * @param typeLiteral The {@link TypeLiteral} corresponding to the parameterized type to bind.
+     * @param instance    The instance to bind this class to.
+     * @return A {@link ScopedBindingBuilder}.
+     */
+    protected <T> ScopedBindingBuilder bindSharedSpy(TypeLiteral<T> typeLiteral, T instance) {
+        return bindNewSharedSpyProvider(Key.get(typeLiteral), instance);
+    }
+
     /**
      * Binds an interface annotated with a {@link com.google.inject.name.Named @Named} to a
      * mocked version of itself. You will usually want to bind this in the
@@ -265,6 +371,10 @@ public abstract class TestModule extends AbstractModule {
         return bind(key).toProvider(new SpyImmutableInstanceProvider<T>(instance));
     }
 
+    private <T> ScopedBindingBuilder bindNewSharedSpyProvider(Key<T> key, T instance) {
+        return bind(key).toProvider(new SharedSpyProvider<T>(instance));
+    }
+
     /**
      * This method binds many different instances to the same class or interface. Use this only
      * if the instances are totally stateless. That is, they are immutable and have
@@ -303,7 +413,7 @@ public abstract class TestModule extends AbstractModule {
      */
     protected <T, V extends T> void bindManyNamedInstances(Class<T> clazz, String name, V... instances) {
         for (V instance : instances) {
-            bind(clazz).annotatedWith(NamedUniqueAnnotations.create(name)).toInstance(instance);
+            bind(clazz).annotatedWith(nextManyBindingAnnotation(TypeLiteral.get(clazz), name)).toInstance(instance);
         }
     }
 
@@ -345,7 +455,7 @@ public abstract class TestModule extends AbstractModule {
      */
     protected <T, V extends T> void bindManyNamedInstances(TypeLiteral<T> type, String name, V... instances) {
         for (V instance : instances) {
-            bind(type).annotatedWith(NamedUniqueAnnotations.create(name)).toInstance(instance);
+            bind(type).annotatedWith(nextManyBindingAnnotation(type, name)).toInstance(instance);
         }
     }
 
@@ -377,7 +487,8 @@ public abstract class TestModule extends AbstractModule {
      */
     protected <T> void bindManyNamed(Class<T> clazz, String name, Class<? extends T>... boundClasses) {
         for (Class<? extends T> boundClass : boundClasses) {
-            bind(clazz).annotatedWith(NamedUniqueAnnotations.create(name)).to(boundClass).in(TestScope.SINGLETON);
+            bind(clazz).annotatedWith(nextManyBindingAnnotation(TypeLiteral.get(clazz), name)).to(boundClass)
+                    .in(TestScope.SINGLETON);
         }
     }
 
@@ -410,7 +521,7 @@ public abstract class TestModule extends AbstractModule {
     protected <T> void bindManyNamed(TypeLiteral<T> type, String name,
             TypeLiteral<? extends T>... boundTypes) {
         for (TypeLiteral<? extends T> boundType : boundTypes) {
-            bind(type).annotatedWith(NamedUniqueAnnotations.create(name)).to(boundType).in(TestScope.SINGLETON);
+            bind(type).annotatedWith(nextManyBindingAnnotation(type, name)).to(boundType).in(TestScope.SINGLETON);
         }
     }
 
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+import com.google.inject.spi.DefaultBindingScopingVisitor;
+import com.google.inject.spi.ProviderInstanceBinding;
+
+/**
+ * Finds the {@link TestModule} of a test class and prepares the injectors created from it.
+ * Used by the {@link JukitoRunner}.
+ */
+final class TestModules {
+
+    private TestModules() {
+    }
+
+    static TestModule getTestModule(Class<?> testClass) throws InstantiationException, IllegalAccessException {
+        Set<Class<? extends Module>> useModuleClasses = getUseModuleClasses(testClass);
+        boolean autoBindMocks = getAutoBindMocksValue(testClass);
+        final MockProfile mockProfile = getMockProfile(testClass);
+        if (!useModuleClasses.isEmpty()) {
+            return createJukitoModule(useModuleClasses, autoBindMocks, mockProfile);
+        }
+
+        TestModule testModule = getInnerClassModule(testClass);
+        if (testModule != null) {
+            return testModule;
+        }
+
+        if (autoBindMocks) {
+            return new JukitoModule() {
+                @Override
+                protected void configureTest() {
+                }
+
+                @Override
+                protected MockProfile getMockProfile() {
+                    return mockProfile;
+                }
+            };
+        } else {
+            return new TestModule() {
+                @Override
+                protected void configureTest() {
+                }
+            };
+        }
+    }
+
+    /**
+     * Gets Guice modules registered with {@link UseModules} from test class and all super classes.
+     *
+     * @param testClass the test class running
+     * @return set of Guice modules
+     */
+    static Set<Class<? extends Module>> getUseModuleClasses(Class<?> testClass) {
+        Class<?> currentClass = testClass;
+        Set<Class<? extends Module>> modules = new HashSet<>();
+        while (currentClass != null) {
+            UseModules useModules = currentClass.getAnnotation(UseModules.class);
+            if (useModules != null) {
+                Collections.addAll(modules, useModules.value());
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+        return modules;
+    }
+
+    private static TestModule getInnerClassModule(Class<?> testClass)
+            throws InstantiationException, IllegalAccessException {
+        Class<?> currentClass = testClass;
+        while (currentClass != null) {
+            for (Class<?> innerClass : currentClass.getDeclaredClasses()) {
+                if (TestModule.class.isAssignableFrom(innerClass)) {
+                    return (TestModule) innerClass.newInstance();
+                }
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+        return null;
+    }
+
+    private static boolean getAutoBindMocksValue(Class<?> testClass) {
+        boolean autoBindMocks = true;
+        Class<?> currentClass = testClass;
+        while (currentClass != null) {
+            UseModules useModules = currentClass.getAnnotation(UseModules.class);
+            if (useModules != null) {
+                autoBindMocks = useModules.autoBindMocks();
+                break;
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+        return autoBindMocks;
+    }
+
+    private static MockProfile getMockProfile(Class<?> testClass) {
+        Class<?> currentClass = testClass;
+        while (currentClass != null) {
+            UseModules useModules = currentClass.getAnnotation(UseModules.class);
+            if (useModules != null) {
+                return useModules.mockProfile();
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+        return MockProfile.DEFAULT;
+    }
+
+    private static TestModule createJukitoModule(final Iterable<Class<? extends Module>> moduleClasses,
+            boolean autoBindMocks, final MockProfile mockProfile) {
+        if (autoBindMocks) {
+            return new JukitoModule() {
+                @Override
+                protected void configureTest() {
+                    for (Class<? extends Module> mClass : moduleClasses) {
+                        try {
+                            install(mClass.newInstance());
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }
+
+                @Override
+                protected MockProfile getMockProfile() {
+                    return mockProfile;
+                }
+            };
+        } else {
+            return new TestModule() {
+                @Override
+                protected void configureTest() {
+                    for (Class<? extends Module> mClass : moduleClasses) {
+                        try {
+                            install(mClass.newInstance());
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Collects the bindings of a {@link JukitoModule}, so that it can bind the missing ones to mocks.
+     * Must be called before creating the injector.
+     *
+     * @param testModule The test module.
+     */
+    static void observeBindings(TestModule testModule) {
+        if (testModule instanceof JukitoModule) {
+            JukitoModule jukitoModule = (JukitoModule) testModule;
+
+            // Record the test module once, the injector replays the recorded elements
+            BindingsCollector collector = new BindingsCollector(jukitoModule.recordTestElements());
+            collector.collectBindings();
+            jukitoModule.setBindingsObserved(collector.getBindingsObserved());
+        }
+    }
+
+    /**
+     * Prints the bindings report of a {@link JukitoModule}, if it has a report writer.
+     * Must be called after creating the injector.
+     *
+     * @param testModule The test module.
+     */
+    static void printReport(TestModule testModule) {
+        if (testModule instanceof JukitoModule && ((JukitoModule) testModule).getReportWriter() != null) {
+            JukitoModule jukitoModule = (JukitoModule) testModule;
+
+            // An output report is desired
+            BindingsCollector collector = new BindingsCollector(jukitoModule);
+            collector.collectBindings();
+            jukitoModule.printReport(collector.getBindingsObserved());
+        }
+    }
+
+    /**
+     * Prepares the mocks bound by an injector that was just created: the mocks that can outlive
+     * a test are excluded from the {@link MockPool}, and the classes of the mocks, as well as those
+     * listed by the {@link MockTypesManifest}, are generated in the background by the
+     * {@link MockPregenerator}.
+     *
+     * @param injector The injector that was just created.
+     */
+    static void prepareMocks(Injector injector) {
+        if (!MockPool.isEnabled() && !MockPregenerator.isEnabled()) {
+            return;
+        }
+        if (MockPregenerator.isEnabled()) {
+            MockPregenerator.submitManifest();
+        }
+        for (Map.Entry<Binding<?>, MockProvider<?>> entry : findMockProviders(injector).entrySet()) {
+            MockPool.excludeIfLongLived(entry.getKey(), entry.getValue());
+            MockPregenerator.submit(entry.getValue().getClassToProvide());
+        }
+    }
+
+    /**
+     * @param injector The injector to look into.
+     * @return The bindings of {@code injector} to a {@link MockProvider}, with their provider.
+     */
+    static Map<Binding<?>, MockProvider<?>> findMockProviders(Injector injector) {
+        Map<Binding<?>, MockProvider<?>> mockProviders = new LinkedHashMap<>();
+        for (Binding<?> binding : injector.getBindings().values()) {
+            if (binding instanceof ProviderInstanceBinding
+                    && ((ProviderInstanceBinding<?>) binding).getUserSuppliedProvider() instanceof MockProvider) {
+                mockProviders.put(binding,
+                        (MockProvider<?>) ((ProviderInstanceBinding<?>) binding).getUserSuppliedProvider());
+            }
+        }
+        return mockProviders;
+    }
+
+    /**
+     * Finds the bindings in the {@link TestScope#EAGER_SINGLETON} scope, so that the singletons
+     * can be instantiated before every test without going through all the bindings.
+     * <p/>
+     * This includes the just-in-time bindings created with the injector, for example for the
+     * dependencies of the explicit bindings. The just-in-time bindings created later, when a test
+     * first gets an unbound class, are not found, so such singletons are only created when
+     * they are injected.
+     *
+     * @param injector The injector to look into.
+     * @return The providers of the eager test singletons.
+     */
+    static Provider<?>[] findEagerTestSingletons(Injector injector) {
+        DefaultBindingScopingVisitor<Boolean> isEagerTestScopeSingleton =
+                new DefaultBindingScopingVisitor<Boolean>() {
+                    public Boolean visitScope(Scope scope) {
+                        return scope == TestScope.EAGER_SINGLETON;
+                    }
+                };
+        List<Provider<?>> providers = new ArrayList<>();
+        for (Binding<?> binding : injector.getAllBindings().values()) {
+            if (binding != null) {
+                Boolean result = binding.acceptScopingVisitor(isEagerTestScopeSingleton);
+                if (result != null && result) {
+                    providers.add(binding.getProvider());
+                }
+            }
+        }
+        return providers.toArray(new Provider<?>[providers.size()]);
+    }
+}
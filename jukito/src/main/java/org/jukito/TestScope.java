@@ -16,8 +16,15 @@
 
 package org.jukito;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.inject.Key;
 import com.google.inject.Provider;
@@ -27,21 +34,126 @@ import com.google.inject.Scope;
  * Container of the {@link #SINGLETON} and {@link #EAGER_SINGLETON} scopes for
  * test cases running with the {@link JukitoRunner}. Depends on mockito.
  * <p/>
+ * The instances of the test-scoped singletons are kept in a {@link Context} bound to
+ * the thread running the test. This way, tests running at the same time in different
+ * threads each get their own singletons. The context is inherited by the threads started
+ * from the test, and the {@link JukitoRunner} binds it explicitly to the threads it hands
+ * the test to, for example to enforce a timeout. The threads without the context of a running
+ * test, like the threads of a pool started before the test, use the context last entered by a
+ * test that is still running.
+ * <p/>
  * Depends on Mockito.
  */
 public class TestScope {
 
+    /**
+     * The instances of the test-scoped singletons of a single test. A context can be
+     * bound to several threads at the same time, so it can be accessed concurrently.
+     */
+    static class Context {
+        private final ConcurrentMap<Singleton, ConcurrentMap<Key<?>, Instance>> instances =
+                new ConcurrentHashMap<Singleton, ConcurrentMap<Key<?>, Instance>>();
+        private final Queue<Object> recycledMocks = new ConcurrentLinkedQueue<Object>();
+        private final Queue<Object> sharedMocks = new ConcurrentLinkedQueue<Object>();
+        private final Map<Object, Boolean> registeredSharedMocks =
+                Collections.synchronizedMap(new IdentityHashMap<Object, Boolean>());
+        private volatile boolean released;
+
+        /**
+         * Marks this context as released once its test is finished. The threads it was passed on
+         * to no longer use it.
+         */
+        void release() {
+            released = true;
+        }
+
+        /**
+         * @param mock A mock taken from the {@link MockPool} for this context.
+         */
+        void addRecycledMock(Object mock) {
+            recycledMocks.add(mock);
+        }
+
+        /**
+         * @return A mock taken from the {@link MockPool} for this context, or {@code null} if
+         *         they were all given back.
+         */
+        Object pollRecycledMock() {
+            return recycledMocks.poll();
+        }
+
+        /**
+         * @param mock A mock shared by several tests, to reset when this context is released. A mock
+         *             is only kept once, however many times it is added, and compared by identity since
+         *             its {@code equals} method can be stubbed.
+         */
+        void addSharedMock(Object mock) {
+            if (registeredSharedMocks.put(mock, Boolean.TRUE) == null) {
+                sharedMocks.add(mock);
+            }
+        }
+
+        /**
+         * @return A mock shared by several tests and used in this context, or {@code null} if
+         *         they were all reset.
+         */
+        Object pollSharedMock() {
+            Object mock = sharedMocks.poll();
+            if (mock != null) {
+                registeredSharedMocks.remove(mock);
+            }
+            return mock;
+        }
+
+        private ConcurrentMap<Key<?>, Instance> getInstances(Singleton scope) {
+            ConcurrentMap<Key<?>, Instance> scopeInstances = instances.get(scope);
+            if (scopeInstances == null) {
+                ConcurrentMap<Key<?>, Instance> newInstances = new ConcurrentHashMap<Key<?>, Instance>();
+                scopeInstances = instances.putIfAbsent(scope, newInstances);
+                if (scopeInstances == null) {
+                    scopeInstances = newInstances;
+                }
+            }
+            return scopeInstances;
+        }
+    }
+
+    /**
+     * The instance of a test-scoped singleton in a context, created once even when threads sharing
+     * the context get it at the same time. Only the threads getting the same singleton wait for each
+     * other, and they wait on a {@link Lock} rather than a monitor, which would pin virtual threads.
+     */
+    private static class Instance {
+        private final Lock lock = new ReentrantLock();
+        private volatile Object value;
+
+        Object get(Provider<?> unscoped) {
+            Object o = value;
+            if (o == null) {
+                lock.lock();
+                try {
+                    o = value;
+                    if (o == null) {
+                        o = unscoped.get();
+                        value = o;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return o;
+        }
+    }
+
     private static class Singleton implements Scope {
         private final String simpleName;
 
-        private final Map<Key<?>, Object> backingMap = new HashMap<Key<?>, Object>();
-
         private Singleton(String simpleName) {
             this.simpleName = simpleName;
         }
 
         public void clear() {
-            backingMap.clear();
+            getContext().getInstances(this).clear();
         }
 
         @Override
@@ -49,14 +161,17 @@ public class TestScope {
             return new Provider<T>() {
                 @SuppressWarnings("unchecked")
                 public T get() {
+                    ConcurrentMap<Key<?>, Instance> instances = getContext().getInstances(Singleton.this);
 
-                    Object o = backingMap.get(key);
-
-                    if (o == null) {
-                        o = unscoped.get();
-                        backingMap.put(key, o);
+                    Instance instance = instances.get(key);
+                    if (instance == null) {
+                        Instance newInstance = new Instance();
+                        instance = instances.putIfAbsent(key, newInstance);
+                        if (instance == null) {
+                            instance = newInstance;
+                        }
                     }
-                    return (T) o;
+                    return (T) instance.get(unscoped);
                 }
             };
         }
@@ -83,13 +198,86 @@ public class TestScope {
      */
     public static final Singleton EAGER_SINGLETON = new Singleton("EagerTestSingleton");
 
+    /**
+     * The context bound to the current thread, passed on to the threads it starts.
+     */
+    private static final ThreadLocal<Context> currentContext = new InheritableThreadLocal<Context>();
+
+    /**
+     * The context last entered by a test, for the threads without a context.
+     */
+    private static volatile Context lastContext;
+
+    /**
+     * The context used when no test entered a context, for example when the scopes are used
+     * outside of Jukito.
+     */
+    private static final Context defaultContext = new Context();
+
     /**
      * Clears all the instances of test-scoped singletons. After this method is
      * called, any "singleton" bound to this scope that had already been created
      * will be created again next time it gets injected.
+     * <p/>
+     * Only the singletons of the context of the current thread are cleared, the tests
+     * running in other threads are not affected.
      */
     public static void clear() {
         SINGLETON.clear();
         EAGER_SINGLETON.clear();
     }
+
+    /**
+     * @return The context bound to the current thread if it was not released, or else the context
+     *         last entered by a test that is still running, or else the default context.
+     */
+    static Context getContext() {
+        Context context = currentContext.get();
+        if (context == null || context.released) {
+            context = lastContext;
+            if (context == null || context.released) {
+                context = defaultContext;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Binds a new context to the current thread.
+     *
+     * @return The context that was bound to the current thread, to restore with
+     *         {@link #exitContext(Context)}.
+     */
+    static Context enterContext() {
+        return enterContext(new Context());
+    }
+
+    /**
+     * Binds the given context to the current thread, for example to resume a test on a
+     * thread that did not start it.
+     *
+     * @param context The context to bind to the current thread.
+     * @return The context that was bound to the current thread, to restore with
+     *         {@link #exitContext(Context)}.
+     */
+    static Context enterContext(Context context) {
+        Context previous = currentContext.get();
+        currentContext.set(context);
+        lastContext = context;
+        return previous;
+    }
+
+    /**
+     * Restores the context that was bound to the current thread before calling
+     * {@link #enterContext()}.
+     *
+     * @param previous The context returned by {@link #enterContext()}.
+     */
+    static void exitContext(Context previous) {
+        if (previous == null) {
+            currentContext.remove();
+        } else {
+            currentContext.set(previous);
+        }
+    }
 }
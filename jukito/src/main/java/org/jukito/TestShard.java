@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Method;
+
+/**
+ * Selects the tests to run in one of several JVMs sharing the tests of a {@link JukitoRunner},
+ * when the {@value #INDEX_PROPERTY} and {@value #COUNT_PROPERTY} system properties are set.
+ * <p/>
+ * Every test, including every combination of {@literal @}{@link All} bindings, belongs to the
+ * shard given by the mixed hash of its identity: the signature of the test method and the positions
+ * of the bindings in the combination. The identity does not depend on the JVM, so the shards
+ * with the same count always split the tests the same way, and together run every test once.
+ */
+final class TestShard {
+
+    /**
+     * The system property giving the index of the shard to run, from {@code 0}.
+     */
+    static final String INDEX_PROPERTY = "jukito.shard.index";
+
+    /**
+     * The system property giving the number of shards.
+     */
+    static final String COUNT_PROPERTY = "jukito.shard.count";
+
+    private final int index;
+    private final int count;
+
+    TestShard(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid shard " + index + " of " + count
+                    + ", the index must be between 0 and the count, excluded.");
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * @return The shard configured by the system properties, or {@code null} if every test must run.
+     */
+    static TestShard fromProperties() {
+        String index = System.getProperty(INDEX_PROPERTY);
+        String count = System.getProperty(COUNT_PROPERTY);
+        boolean hasIndex = index != null && index.trim().length() > 0;
+        boolean hasCount = count != null && count.trim().length() > 0;
+        if (!hasIndex && !hasCount) {
+            return null;
+        }
+        if (!hasIndex || !hasCount) {
+            throw new IllegalArgumentException("The system properties " + INDEX_PROPERTY + " and "
+                    + COUNT_PROPERTY + " must be set together.");
+        }
+        return new TestShard(parse(INDEX_PROPERTY, index), parse(COUNT_PROPERTY, count));
+    }
+
+    private static int parse(String property, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The system property " + property
+                    + " must be a number, got: " + value, e);
+        }
+    }
+
+    /**
+     * @param javaMethod The test method.
+     * @param indices    The positions of the bindings of the combination, one per parameter annotated
+     *                   with {@literal @}{@link All}.
+     * @return {@code true} if the combination runs in this shard.
+     */
+    boolean contains(Method javaMethod, int[] indices) {
+        int shard = mix(getIdentity(javaMethod, indices).hashCode()) % count;
+        return (shard < 0 ? shard + count : shard) == index;
+    }
+
+    /**
+     * The finalizer of MurmurHash3. The hash codes of identities that only differ by their last
+     * positions are close to each other, they must be mixed to be spread evenly among the shards.
+     */
+    static int mix(int hash) {
+        int mixed = hash;
+        mixed ^= mixed >>> 16;
+        mixed *= 0x85ebca6b;
+        mixed ^= mixed >>> 13;
+        mixed *= 0xc2b2ae35;
+        mixed ^= mixed >>> 16;
+        return mixed;
+    }
+
+    /**
+     * The identity of a combination, only made of names and numbers so that its hash code is the
+     * same in every JVM.
+     */
+    static String getIdentity(Method javaMethod, int[] indices) {
+        StringBuilder identity = new StringBuilder();
+        identity.append(javaMethod.getDeclaringClass().getName()).append('#').append(javaMethod.getName())
+                .append('(');
+        Class<?>[] parameterTypes = javaMethod.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                identity.append(',');
+            }
+            identity.append(parameterTypes[i].getName());
+        }
+        identity.append(')');
+        for (int bindingIndex : indices) {
+            identity.append('[').append(bindingIndex).append(']');
+        }
+        return identity.toString();
+    }
+}
@@ -60,4 +60,10 @@ public @interface UseModules {
     Class<? extends Module>[] value();
 
     boolean autoBindMocks() default true;
+
+    /**
+     * @return The profile of the mocks bound automatically when {@link #autoBindMocks()} is
+     *         {@code true}, see {@link MockProfile}.
+     */
+    MockProfile mockProfile() default MockProfile.DEFAULT;
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.inject.Binding;
+import com.google.inject.Guice;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test that {@link AllBindingsIndex} finds the bindings of the parameters annotated with
+ * {@literal @}{@link All} by type and name.
+ */
+public class AllBindingsIndexTest {
+
+    static class Module extends TestModule {
+        @Override
+        protected void configureTest() {
+            bind(String.class).toInstance("unannotated");
+            bindManyInstances(String.class, "A", "B");
+            bindManyNamedInstances(String.class, "first", "C", "D");
+            bindManyNamedInstances(String.class, "second", "E");
+            bind(String.class).annotatedWith(Names.named("first")).toInstance("named");
+            bindManyInstances(Integer.class, 1);
+        }
+    }
+
+    private final AllBindingsIndex index = new AllBindingsIndex(Guice.createInjector(new Module()));
+
+    @Test
+    public void defaultNameGivesAllTheAnnotatedBindingsInOrder() {
+        assertEquals(Arrays.<Object>asList("A", "B", "C", "D", "E", "named"), getInstances(String.class, All.DEFAULT));
+    }
+
+    @Test
+    public void nameGivesTheBindingsOfThatName() {
+        assertEquals(Arrays.<Object>asList("C", "D"), getInstances(String.class, "first"));
+        assertEquals(Arrays.<Object>asList("E"), getInstances(String.class, "second"));
+    }
+
+    @Test
+    public void unknownTypeOrNameGivesNoBindings() {
+        assertEquals(0, index.get(TypeLiteral.get(Long.class), All.DEFAULT).length);
+        assertEquals(0, index.get(TypeLiteral.get(Integer.class), "first").length);
+    }
+
+    @Test
+    public void defaultNameIncludesOtherAnnotations() {
+        assertEquals(Key.get(String.class, Names.named("first")),
+                index.get(TypeLiteral.get(String.class), All.DEFAULT)[5].getKey());
+    }
+
+    @Test
+    public void bindingsAreIndexedOnce() {
+        TypeLiteral<String> type = TypeLiteral.get(String.class);
+
+        assertSame(index.get(type, "first"), index.get(type, "first"));
+    }
+
+    private List<Object> getInstances(Class<?> type, String name) {
+        List<Object> instances = new ArrayList<Object>();
+        for (Binding<?> binding : index.get(TypeLiteral.get(type), name)) {
+            instances.add(binding.getProvider().get());
+        }
+        return instances;
+    }
+}
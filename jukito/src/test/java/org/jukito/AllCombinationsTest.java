@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+
+import com.google.inject.Binding;
+import com.google.inject.Guice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that {@link AllCombinations} computes the combinations of {@literal @}{@link All} bindings
+ * from their position.
+ */
+public class AllCombinationsTest {
+
+    static class Module extends TestModule {
+        @Override
+        protected void configureTest() {
+            bindManyInstances(String.class, "A", "B", "C");
+            bindManyInstances(Integer.class, 1, 2);
+            Long[] longs = new Long[50];
+            for (int i = 0; i < longs.length; i++) {
+                longs[i] = (long) i;
+            }
+            bindManyInstances(Long.class, longs);
+            Short[] shorts = new Short[50];
+            for (int i = 0; i < shorts.length; i++) {
+                shorts[i] = (short) i;
+            }
+            bindManyInstances(Short.class, shorts);
+        }
+    }
+
+    private final AllBindingsIndex allBindings = new AllBindingsIndex(Guice.createInjector(new Module()));
+
+    public void small(@All String string, @All Integer integer) {
+    }
+
+    public void large(@All Long first, @All Short second, @All Long third) {
+    }
+
+    @Combinations(strength = 2)
+    public void pairwise(@All Long first, @All Short second, @All Long third) {
+    }
+
+    @Combinations(strength = 3)
+    public void strengthOfAllParameters(@All String string, @All Integer integer) {
+    }
+
+    @SampleCombinations(max = 100, seed = 7)
+    public void sampled(@All Long first, @All Short second, @All Long third) {
+    }
+
+    @Combinations
+    @SampleCombinations(max = 10)
+    public void sampledPairwise(@All Long first, @All Short second, @All Long third) {
+    }
+
+    public void none() {
+    }
+
+    @Test
+    public void lastParameterVariesFirst() throws Exception {
+        List<InjectedFrameworkMethod> methods = AllCombinations.expand(getMethod("small").getMethod(), allBindings);
+
+        assertEquals("[A1, A2, B1, B2, C1, C2]", describeAll(methods).toString());
+    }
+
+    @Test
+    public void largeProductIsNotStored() throws Exception {
+        List<InjectedFrameworkMethod> methods = AllCombinations.expand(getMethod("large").getMethod(), allBindings);
+
+        assertEquals(125000, methods.size());
+        assertEquals("494949", describe(methods.get(124999)));
+        assertEquals("112", describe(methods.get(2500 + 50 + 2)));
+    }
+
+    @Test
+    public void combinationsAreReducedToCoveringArray() throws Exception {
+        List<InjectedFrameworkMethod> methods = AllCombinations.expand(getMethod("pairwise").getMethod(), allBindings);
+
+        assertTrue("Too many combinations: " + methods.size(), methods.size() < 125000 / 10);
+        Set<String> pairs = new HashSet<String>();
+        for (InjectedFrameworkMethod method : methods) {
+            List<Binding<?>> bindings = method.getBindingsToUseForParameters();
+            pairs.add("01:" + bindings.get(0).getProvider().get() + "," + bindings.get(1).getProvider().get());
+            pairs.add("02:" + bindings.get(0).getProvider().get() + "," + bindings.get(2).getProvider().get());
+            pairs.add("12:" + bindings.get(1).getProvider().get() + "," + bindings.get(2).getProvider().get());
+        }
+        assertEquals(3 * 2500, pairs.size());
+    }
+
+    @Test
+    public void strengthOfAllParametersUsesEveryCombination() throws Exception {
+        List<InjectedFrameworkMethod> methods = AllCombinations.expand(getMethod("strengthOfAllParameters").getMethod(),
+                allBindings);
+
+        assertEquals(6, methods.size());
+    }
+
+    @Test
+    public void combinationsAreSampled() throws Exception {
+        List<String> sample = describeAll(AllCombinations.expand(getMethod("sampled").getMethod(), allBindings));
+
+        assertEquals(100, sample.size());
+        assertEquals(100, new HashSet<String>(sample).size());
+        assertEquals(sample, describeAll(AllCombinations.expand(getMethod("sampled").getMethod(), allBindings)));
+    }
+
+    @Test
+    public void seedCanBeOverridden() throws Exception {
+        List<String> sample = describeAll(AllCombinations.expand(getMethod("sampled").getMethod(), allBindings));
+
+        System.setProperty(SampleCombinations.SEED_PROPERTY, "8");
+        try {
+            List<String> otherSample =
+                    describeAll(AllCombinations.expand(getMethod("sampled").getMethod(), allBindings));
+
+            assertEquals(100, otherSample.size());
+            assertFalse(sample.equals(otherSample));
+        } finally {
+            System.clearProperty(SampleCombinations.SEED_PROPERTY);
+        }
+    }
+
+    @Test
+    public void reducedCombinationsAreSampled() throws Exception {
+        List<InjectedFrameworkMethod> methods =
+                AllCombinations.expand(getMethod("sampledPairwise").getMethod(), allBindings);
+
+        assertEquals(10, methods.size());
+    }
+
+    @Test
+    public void fullPropertyUsesEveryCombination() throws Exception {
+        System.setProperty(SampleCombinations.FULL_PROPERTY, "true");
+        try {
+            assertEquals(125000, AllCombinations.expand(getMethod("sampled").getMethod(), allBindings).size());
+            assertEquals(125000, AllCombinations.expand(getMethod("sampledPairwise").getMethod(), allBindings).size());
+        } finally {
+            System.clearProperty(SampleCombinations.FULL_PROPERTY);
+        }
+    }
+
+    @Test
+    public void methodsAreExpandedOneAfterTheOther() throws Exception {
+        List<FrameworkMethod> methods = new ArrayList<FrameworkMethod>();
+        methods.add(getMethod("small"));
+        methods.add(getMethod("none"));
+        methods.add(getMethod("small"));
+
+        List<FrameworkMethod> expanded = AllCombinations.expand(methods, allBindings, null);
+
+        assertEquals(13, expanded.size());
+        assertEquals("C2", describe((InjectedFrameworkMethod) expanded.get(5)));
+        assertEquals("none", expanded.get(6).getName());
+        assertEquals("A1", describe((InjectedFrameworkMethod) expanded.get(7)));
+        assertEquals("C2", describe((InjectedFrameworkMethod) expanded.get(12)));
+    }
+
+    private FrameworkMethod getMethod(String name) {
+        for (Method method : getClass().getMethods()) {
+            if (method.getName().equals(name)) {
+                return new FrameworkMethod(method);
+            }
+        }
+        throw new AssertionError(name);
+    }
+
+    private List<String> describeAll(List<InjectedFrameworkMethod> methods) {
+        List<String> descriptions = new ArrayList<String>();
+        for (InjectedFrameworkMethod method : methods) {
+            descriptions.add(describe(method));
+        }
+        return descriptions;
+    }
+
+    private String describe(InjectedFrameworkMethod method) {
+        StringBuilder description = new StringBuilder();
+        for (Binding<?> binding : method.getBindingsToUseForParameters()) {
+            description.append(binding.getProvider().get());
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test that a shared spy is reused by all the tests and reset after each of them.
+ */
+@RunWith(JukitoRunner.class)
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BindSharedSpyTest {
+
+    /**
+     * Guice test module.
+     */
+    static class Module extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            bindSharedSpy(SimpleClass.class, new SimpleClass("foo"));
+        }
+    }
+
+    static class SimpleClass {
+        private final String arg0;
+
+        SimpleClass(String arg0) {
+            this.arg0 = arg0;
+        }
+
+        String getVal() {
+            return arg0;
+        }
+    }
+
+    private static final List<SimpleClass> SPIES = new ArrayList<SimpleClass>();
+
+    @Test
+    public void first(SimpleClass simple, SimpleClass sameSimple) {
+        SPIES.add(simple);
+        assertSame(simple, sameSimple);
+        assertEquals("foo", simple.getVal());
+        verify(simple).getVal();
+
+        when(simple.getVal()).thenReturn("stubbed");
+        assertEquals("stubbed", simple.getVal());
+    }
+
+    @Test
+    public void second(SimpleClass simple) {
+        SPIES.add(simple);
+        assertSame(SPIES.get(0), simple);
+        verifyNoInteractions(simple);
+
+        assertEquals("foo", simple.getVal());
+    }
+
+    @Test
+    public void spyIsKeptOncePerContext() {
+        SharedSpyProvider<SimpleClass> provider = new SharedSpyProvider<SimpleClass>(new SimpleClass("bar"));
+        TestScope.Context context = new TestScope.Context();
+        TestScope.Context previous = TestScope.enterContext(context);
+        SimpleClass spy;
+        try {
+            spy = provider.get();
+            for (int i = 0; i < 100; i++) {
+                provider.get();
+            }
+        } finally {
+            TestScope.exitContext(previous);
+        }
+
+        assertSame(spy, context.pollSharedMock());
+        assertNull(context.pollSharedMock());
+    }
+}
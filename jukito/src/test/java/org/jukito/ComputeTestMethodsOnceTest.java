@@ -0,0 +1,77 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runners.model.FrameworkMethod;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test that {@link JukitoRunner} expands the {@literal @}{@link All} combinations only once.
+ */
+public class ComputeTestMethodsOnceTest {
+
+    public static class AllTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bindManyInstances(String.class, "A", "B", "C");
+                bindManyInstances(Integer.class, 1, 2);
+            }
+        }
+
+        @Test
+        public void test(@All String string, @All Integer integer) {
+        }
+    }
+
+    @Test
+    public void testMethodsAreComputedOnce() throws Exception {
+        JukitoRunner runner = new JukitoRunner(AllTestClass.class);
+
+        List<FrameworkMethod> testMethods = runner.computeTestMethods();
+        runner.getDescription();
+        Result result = new JUnitCore().run(Request.runner(runner));
+
+        assertEquals(6, testMethods.size());
+        assertEquals(6, result.getRunCount());
+        assertSame(testMethods, runner.computeTestMethods());
+        assertEquals(1, runner.getTestMethodsComputations());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testMethodsAreUnmodifiable() throws Exception {
+        JukitoRunner runner = new JukitoRunner(AllTestClass.class);
+
+        runner.computeTestMethods().remove(0);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void bindingAssignationsAreUnmodifiable() throws Exception {
+        JukitoRunner runner = new JukitoRunner(AllTestClass.class);
+        InjectedFrameworkMethod method = (InjectedFrameworkMethod) runner.computeTestMethods().get(0);
+
+        method.getBindingsToUseForParameters().remove(0);
+    }
+}
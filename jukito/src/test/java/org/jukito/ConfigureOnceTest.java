@@ -0,0 +1,109 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that the modules of a test class are only configured once when creating its injector.
+ */
+public class ConfigureOnceTest {
+
+    interface Service {
+    }
+
+    interface Dependency {
+    }
+
+    static class CountingModule extends AbstractModule {
+        static int configureCount;
+        static int providesCount;
+
+        @Override
+        protected void configure() {
+            configureCount++;
+        }
+
+        @Provides
+        Service provideService(Dependency dependency) {
+            providesCount++;
+            return new Service() {
+            };
+        }
+    }
+
+    @UseModules(CountingModule.class)
+    public static class UseModulesTestClass {
+        @Test
+        public void test(Service service) {
+        }
+    }
+
+    public static class ReportingTestClass {
+        static class Module extends JukitoModule {
+            final Writer reportWriter = new StringWriter();
+
+            @Override
+            protected void configureTest() {
+                install(new CountingModule());
+            }
+
+            @Override
+            public Writer getReportWriter() {
+                return reportWriter;
+            }
+        }
+
+        @Test
+        public void test(Service service) {
+        }
+    }
+
+    @Before
+    public void resetCounts() {
+        CountingModule.configureCount = 0;
+        CountingModule.providesCount = 0;
+    }
+
+    @Test
+    public void useModulesAreConfiguredOnce() throws Exception {
+        JukitoRunner runner = new JukitoRunner(UseModulesTestClass.class);
+
+        assertEquals(1, CountingModule.configureCount);
+        // The dependency of the @Provides method is found and mocked
+        assertTrue(Mockito.mockingDetails(runner.getInjector().getInstance(Dependency.class)).isMock());
+    }
+
+    @Test
+    public void modulesAreConfiguredOnceWhenReporting() throws Exception {
+        new JukitoRunner(ReportingTestClass.class);
+
+        assertEquals(1, CountingModule.configureCount);
+        assertEquals(0, CountingModule.providesCount);
+    }
+}
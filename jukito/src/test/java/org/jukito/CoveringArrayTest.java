@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that a {@link CoveringArray} covers every combination of values of the given strength.
+ */
+public class CoveringArrayTest {
+
+    @Test
+    public void pairwiseCoversEveryPair() {
+        int[] sizes = {3, 3, 3, 3};
+
+        int[][] rows = CoveringArray.generate(sizes, 2);
+
+        assertCovered(sizes, 2, rows);
+        assertTrue("Too many rows: " + rows.length, rows.length <= 12);
+    }
+
+    @Test
+    public void threeWiseCoversEveryTriple() {
+        int[] sizes = {2, 3, 2, 4, 2};
+
+        int[][] rows = CoveringArray.generate(sizes, 3);
+
+        assertCovered(sizes, 3, rows);
+        assertTrue("Too many rows: " + rows.length, rows.length < 96);
+    }
+
+    @Test
+    public void singleValueParameters() {
+        int[] sizes = {1, 1, 5};
+
+        int[][] rows = CoveringArray.generate(sizes, 2);
+
+        assertCovered(sizes, 2, rows);
+        assertEquals(5, rows.length);
+    }
+
+    @Test
+    public void rowsAreDeterministic() {
+        int[] sizes = {4, 3, 5, 2};
+
+        int[][] rows = CoveringArray.generate(sizes, 2);
+        int[][] otherRows = CoveringArray.generate(sizes, 2);
+
+        assertEquals(rows.length, otherRows.length);
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(toString(rows[i]), toString(otherRows[i]));
+        }
+    }
+
+    private void assertCovered(int[] sizes, int strength, int[][] rows) {
+        Set<String> covered = new HashSet<String>();
+        for (int[] row : rows) {
+            addCombinations(row, strength, 0, "", covered);
+        }
+        Set<String> expected = new HashSet<String>();
+        addAllCombinations(sizes, strength, 0, "", expected);
+        assertTrue(covered.containsAll(expected));
+    }
+
+    private void addCombinations(int[] row, int strength, int next, String prefix, Set<String> result) {
+        if (strength == 0) {
+            result.add(prefix);
+            return;
+        }
+        for (int parameter = next; parameter < row.length; parameter++) {
+            addCombinations(row, strength - 1, parameter + 1, prefix + parameter + "=" + row[parameter] + ";",
+                    result);
+        }
+    }
+
+    private void addAllCombinations(int[] sizes, int strength, int next, String prefix, Set<String> result) {
+        if (strength == 0) {
+            result.add(prefix);
+            return;
+        }
+        for (int parameter = next; parameter < sizes.length; parameter++) {
+            for (int value = 0; value < sizes[parameter]; value++) {
+                addAllCombinations(sizes, strength - 1, parameter + 1, prefix + parameter + "=" + value + ";",
+                        result);
+            }
+        }
+    }
+
+    private String toString(int[] row) {
+        StringBuilder builder = new StringBuilder();
+        for (int value : row) {
+            builder.append(value).append(',');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test that {@link TestModules#findEagerTestSingletons} finds the eager test singletons bound
+ * when the injector is created, explicitly or just-in-time.
+ */
+public class EagerTestSingletonsTest {
+
+    static class Module extends TestModule {
+        @Override
+        protected void configureTest() {
+            bind(ExplicitEagerSingleton.class).in(TestEagerSingleton.class);
+            bind(Dependent.class);
+        }
+    }
+
+    static class ExplicitEagerSingleton {
+    }
+
+    @TestEagerSingleton
+    static class JustInTimeEagerSingleton {
+    }
+
+    @TestEagerSingleton
+    static class LaterEagerSingleton {
+    }
+
+    static class Dependent {
+        @Inject
+        Dependent(JustInTimeEagerSingleton singleton) {
+        }
+    }
+
+    private final Injector injector = Guice.createInjector(new Module());
+
+    @Test
+    public void explicitAndJustInTimeBindingsAreFound() {
+        Provider<?>[] providers = TestModules.findEagerTestSingletons(injector);
+
+        assertEquals(2, providers.length);
+        TestScope.Context previous = TestScope.enterContext(new TestScope.Context());
+        try {
+            assertSame(injector.getInstance(ExplicitEagerSingleton.class), getInstance(providers,
+                    ExplicitEagerSingleton.class));
+            assertSame(injector.getInstance(JustInTimeEagerSingleton.class), getInstance(providers,
+                    JustInTimeEagerSingleton.class));
+        } finally {
+            TestScope.exitContext(previous);
+        }
+    }
+
+    @Test
+    public void justInTimeBindingsCreatedLaterAreNotFound() {
+        Provider<?>[] providers = TestModules.findEagerTestSingletons(injector);
+        injector.getInstance(LaterEagerSingleton.class);
+
+        assertEquals(2, providers.length);
+    }
+
+    private Object getInstance(Provider<?>[] providers, Class<?> type) {
+        for (Provider<?> provider : providers) {
+            Object instance = provider.get();
+            if (type.isInstance(instance)) {
+                return instance;
+            }
+        }
+        throw new AssertionError("No eager test singleton of " + type);
+    }
+}
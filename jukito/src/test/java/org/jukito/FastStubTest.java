@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+import com.google.inject.CreationException;
+import com.google.inject.Guice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test that interfaces can be bound to fast stubs.
+ */
+@RunWith(JukitoRunner.class)
+public class FastStubTest {
+
+    interface Calculator {
+        int add(int a, int b);
+
+        int add(int a, int b, int c);
+
+        String name();
+
+        long count();
+
+        Object other();
+    }
+
+    static class Module extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            bindFastStub(Calculator.class)
+                    .returning("name", "fast")
+                    .answering("add", new FastAnswer() {
+                        @Override
+                        public Object answer(Object[] arguments) {
+                            int sum = 0;
+                            for (Object argument : arguments) {
+                                sum += (Integer) argument;
+                            }
+                            return sum;
+                        }
+                    })
+                    .in(TestSingleton.class);
+        }
+    }
+
+    @Test
+    public void methodsReturnTheirAnswer(Calculator calculator) {
+        assertEquals(3, calculator.add(1, 2));
+        assertEquals(6, calculator.add(1, 2, 3));
+        assertEquals("fast", calculator.name());
+    }
+
+    @Test
+    public void methodsWithoutAnswerReturnDefaults(Calculator calculator) {
+        assertEquals(0L, calculator.count());
+        assertNull(calculator.other());
+    }
+
+    @Test
+    public void stubIsNotAMock(Calculator calculator, Calculator sameCalculator) {
+        assertSame(calculator, sameCalculator);
+        assertFalse(Mockito.mockingDetails(calculator).isMock());
+        assertEquals(calculator, sameCalculator);
+    }
+
+    @Test(expected = CreationException.class)
+    public void unknownMethodIsRejected() {
+        Guice.createInjector(new TestModule() {
+            @Override
+            protected void configureTest() {
+                bindFastStub(Calculator.class).returning("subtract", 1);
+            }
+        });
+    }
+
+    @Test(expected = CreationException.class)
+    public void valueOfWrongTypeIsRejected() {
+        Guice.createInjector(new TestModule() {
+            @Override
+            protected void configureTest() {
+                bindFastStub(Calculator.class).returning("count", "many");
+            }
+        });
+    }
+
+    @Test(expected = CreationException.class)
+    public void classesAreRejected() {
+        Guice.createInjector(new TestModule() {
+            @Override
+            protected void configureTest() {
+                bindFastStub(StringBuilder.class);
+            }
+        });
+    }
+}
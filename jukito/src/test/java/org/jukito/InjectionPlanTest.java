@@ -0,0 +1,88 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that the {@link InjectionPlan} of a method is resolved once and fills-in its parameters.
+ */
+public class InjectionPlanTest {
+
+    interface Service {
+    }
+
+    public static class PlanTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bindManyInstances(String.class, "A", "B");
+            }
+        }
+
+        @Test
+        public void test(@All String string, Service service) {
+        }
+    }
+
+    @Test
+    public void planIsResolvedOnce() throws Exception {
+        JukitoRunner runner = new JukitoRunner(PlanTestClass.class);
+        MethodInjectors injectors = new MethodInjectors(runner.getInjector());
+        Method method = PlanTestClass.class.getMethod("test", String.class, Service.class);
+
+        assertSame(injectors.getPlan(method), injectors.getPlan(method));
+    }
+
+    @Test
+    public void planFillsInParametersOfEachCombination() throws Exception {
+        JukitoRunner runner = new JukitoRunner(PlanTestClass.class);
+        MethodInjectors injectors = new MethodInjectors(runner.getInjector());
+
+        Set<Object> strings = new HashSet<Object>();
+        for (FrameworkMethod method : runner.computeTestMethods()) {
+            Object[] parameters = injectors.getPlan(method.getMethod()).getParameters(method);
+
+            strings.add(parameters[0]);
+            assertTrue(Mockito.mockingDetails(parameters[1]).isMock());
+        }
+
+        Set<Object> expected = new HashSet<Object>();
+        expected.add("A");
+        expected.add("B");
+        assertEquals(expected, strings);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void planFailsWithoutBindingsForAllParameters() throws Exception {
+        JukitoRunner runner = new JukitoRunner(PlanTestClass.class);
+        MethodInjectors injectors = new MethodInjectors(runner.getInjector());
+        Method method = PlanTestClass.class.getMethod("test", String.class, Service.class);
+
+        injectors.getPlan(method).getParameters(new FrameworkMethod(method));
+    }
+}
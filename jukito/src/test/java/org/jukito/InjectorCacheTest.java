@@ -0,0 +1,145 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test that test classes with the same test module share their injector when the
+ * injector cache is enabled.
+ */
+public class InjectorCacheTest {
+
+    interface Service {
+    }
+
+    interface OtherService {
+    }
+
+    static class ServiceImpl implements Service {
+    }
+
+    static class ServiceModule extends AbstractModule {
+        @Override
+        protected void configure() {
+            bind(Service.class).to(ServiceImpl.class);
+        }
+    }
+
+    @UseModules(ServiceModule.class)
+    public static class FirstTestClass {
+        @Inject
+        Service service;
+
+        @Test
+        public void test(OtherService otherService) {
+        }
+    }
+
+    @UseModules(ServiceModule.class)
+    public static class SecondTestClass {
+        @Inject
+        Service service;
+
+        @Test
+        public void test(OtherService otherService) {
+        }
+    }
+
+    @UseModules(ServiceModule.class)
+    public static class DifferentKeysTestClass {
+        @Test
+        public void test(Service service) {
+        }
+    }
+
+    @UseModules(value = ServiceModule.class, autoBindMocks = false)
+    public static class NoAutoBindMocksTestClass {
+        @Test
+        public void test(Service service) {
+        }
+    }
+
+    @Before
+    public void enableCache() {
+        System.setProperty(InjectorCache.PROPERTY, "true");
+    }
+
+    @After
+    public void disableCache() {
+        System.clearProperty(InjectorCache.PROPERTY);
+        System.clearProperty(InjectorCache.SIZE_PROPERTY);
+        InjectorCache.clear();
+    }
+
+    @Test
+    public void testClassesWithSameModulesAndKeysShareInjector() throws Exception {
+        JukitoRunner first = new JukitoRunner(FirstTestClass.class);
+        JukitoRunner second = new JukitoRunner(SecondTestClass.class);
+
+        assertSame(first.getInjector(), second.getInjector());
+    }
+
+    @Test
+    public void testClassesNeedingDifferentKeysDontShareInjector() throws Exception {
+        JukitoRunner first = new JukitoRunner(FirstTestClass.class);
+        JukitoRunner different = new JukitoRunner(DifferentKeysTestClass.class);
+
+        assertNotSame(first.getInjector(), different.getInjector());
+    }
+
+    @Test
+    public void testClassesWithDifferentAutoBindMocksDontShareInjector() throws Exception {
+        JukitoRunner different = new JukitoRunner(DifferentKeysTestClass.class);
+        JukitoRunner noAutoBindMocks = new JukitoRunner(NoAutoBindMocksTestClass.class);
+
+        assertNotSame(different.getInjector(), noAutoBindMocks.getInjector());
+    }
+
+    @Test
+    public void leastRecentlyUsedInjectorIsEvicted() throws Exception {
+        System.setProperty(InjectorCache.SIZE_PROPERTY, "2");
+
+        JukitoRunner first = new JukitoRunner(FirstTestClass.class);
+        new JukitoRunner(DifferentKeysTestClass.class);
+        JukitoRunner second = new JukitoRunner(SecondTestClass.class);
+        new JukitoRunner(NoAutoBindMocksTestClass.class);
+        new JukitoRunner(DifferentKeysTestClass.class);
+        JukitoRunner evicted = new JukitoRunner(SecondTestClass.class);
+
+        assertSame(first.getInjector(), second.getInjector());
+        assertNotSame(first.getInjector(), evicted.getInjector());
+    }
+
+    @Test
+    public void injectorsAreNotSharedWhenCacheIsDisabled() throws Exception {
+        System.clearProperty(InjectorCache.PROPERTY);
+
+        JukitoRunner first = new JukitoRunner(FirstTestClass.class);
+        JukitoRunner second = new JukitoRunner(SecondTestClass.class);
+
+        assertNotSame(first.getInjector(), second.getInjector());
+    }
+}
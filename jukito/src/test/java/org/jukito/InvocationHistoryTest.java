@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test that the number of invocations kept by the mocks and spies created by Jukito is bounded
+ * when the {@value InvocationHistory#PROPERTY} system property is set.
+ */
+public class InvocationHistoryTest {
+
+    interface Service {
+        String name();
+    }
+
+    @After
+    public void clearLimit() {
+        System.clearProperty(InvocationHistory.PROPERTY);
+    }
+
+    @Test
+    public void mockKeepsAllInvocationsByDefault() {
+        Service service = new MockProvider<Service>(Service.class).get();
+
+        callTimes(service, 25);
+
+        assertEquals(25, Mockito.mockingDetails(service).getInvocations().size());
+    }
+
+    @Test
+    public void mockKeepsBoundedInvocations() {
+        System.setProperty(InvocationHistory.PROPERTY, "10");
+        Service service = new MockProvider<Service>(Service.class).get();
+        when(service.name()).thenReturn("stubbed");
+
+        callTimes(service, 25);
+
+        assertEquals("stubbed", service.name());
+        // Trimmed at the 10th and 19th invocations, each time keeping the last one
+        verify(service, times(9)).name();
+    }
+
+    @Test
+    public void mockCanBeStubbedAtTheLimit() {
+        System.setProperty(InvocationHistory.PROPERTY, "2");
+        Service service = new MockProvider<Service>(Service.class).get();
+        service.name();
+
+        // The invocation in when() is the one reaching the limit
+        when(service.name()).thenReturn("stubbed");
+
+        assertEquals("stubbed", service.name());
+        verify(service).name();
+    }
+
+    @Test
+    public void mockCanBeVerifiedAtTheLimit() {
+        System.setProperty(InvocationHistory.PROPERTY, "2");
+        Service service = new MockProvider<Service>(Service.class).get();
+        service.name();
+
+        verify(service).name();
+        service.name();
+
+        verify(service).name();
+    }
+
+    @Test
+    public void spyKeepsBoundedInvocations() {
+        System.setProperty(InvocationHistory.PROPERTY, "10");
+        List<String> list = new SpyImmutableInstanceProvider<List<String>>(new ArrayList<String>()).get();
+
+        for (int i = 0; i < 25; i++) {
+            list.isEmpty();
+        }
+
+        verify(list, times(7)).isEmpty();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLimitIsRejected() {
+        System.setProperty(InvocationHistory.PROPERTY, "-1");
+
+        InvocationHistory.getLimit();
+    }
+
+    private void callTimes(Service service, int times) {
+        for (int i = 0; i < times; i++) {
+            service.name();
+        }
+    }
+}
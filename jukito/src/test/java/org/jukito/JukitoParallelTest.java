@@ -0,0 +1,406 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runners.MethodSorters;
+import org.junit.runners.model.MultipleFailureException;
+
+import com.google.inject.Inject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test that the test methods of a class annotated with {@link JukitoParallel} run in
+ * parallel, each with its own test-scoped singletons, on platform or virtual threads.
+ */
+public class JukitoParallelTest {
+
+    interface Service {
+    }
+
+    @JukitoParallel(threads = 4)
+    public static class ParallelTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bindManyInstances(Integer.class, 1, 2, 3, 4);
+            }
+        }
+
+        static final CyclicBarrier BARRIER = new CyclicBarrier(4);
+        static final Set<Service> SERVICES = Collections.synchronizedSet(new HashSet<Service>());
+        static final Set<String> THREADS = Collections.synchronizedSet(new HashSet<String>());
+
+        @Inject
+        Service service;
+
+        @Test
+        public void test(@All Integer value, Service parameter) throws Exception {
+            assertTrue(service == parameter);
+            SERVICES.add(service);
+            THREADS.add(Thread.currentThread().getName());
+            // Only passes if the four combinations are running at the same time
+            BARRIER.await(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @JukitoParallel(threads = 2, virtualThreads = true)
+    public static class VirtualThreadsTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bindManyInstances(Integer.class, 1, 2, 3, 4);
+            }
+        }
+
+        static final CyclicBarrier BARRIER = new CyclicBarrier(2);
+        static final AtomicInteger RUNNING = new AtomicInteger();
+        static final AtomicInteger MAX_RUNNING = new AtomicInteger();
+
+        @Before
+        public void before() {
+            int running = RUNNING.incrementAndGet();
+            int max = MAX_RUNNING.get();
+            while (running > max && !MAX_RUNNING.compareAndSet(max, running)) {
+                max = MAX_RUNNING.get();
+            }
+        }
+
+        @Test
+        public void test(@All Integer value) throws Exception {
+            // Only passes if the combinations are running two at a time
+            BARRIER.await(10, TimeUnit.SECONDS);
+        }
+
+        @After
+        public void after() {
+            RUNNING.decrementAndGet();
+        }
+    }
+
+    @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+    public static class ParallelCombinationsTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bindManyInstances(Integer.class, 1, 2, 3, 4);
+            }
+        }
+
+        static final CyclicBarrier BARRIER = new CyclicBarrier(4);
+        static final Set<Service> SERVICES = Collections.synchronizedSet(new HashSet<Service>());
+
+        @Inject
+        Service service;
+
+        @Test
+        public void a() {
+        }
+
+        @Test
+        @JukitoParallel(threads = 4)
+        public void b(@All Integer value, Service parameter) throws Exception {
+            assertTrue(service == parameter);
+            SERVICES.add(service);
+            // Only passes if the four combinations are running at the same time
+            BARRIER.await(10, TimeUnit.SECONDS);
+            // The last combinations finish first
+            Thread.sleep(50 * (4 - value));
+            throw new AssertionError(String.valueOf(value));
+        }
+
+        @Test
+        public void c() {
+        }
+    }
+
+    public static class StreamingCombinationsTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bindManyInstances(Integer.class, 1, 2, 3);
+            }
+        }
+
+        static final AtomicInteger FINISHED = new AtomicInteger();
+
+        @Test
+        @JukitoParallel(threads = 1)
+        public void test(@All Integer value) {
+            // The earlier combinations were already reported
+            assertEquals(value - 1, FINISHED.get());
+        }
+    }
+
+    public static class SequentialTestClass {
+        @Test
+        public void test() {
+        }
+    }
+
+    @After
+    public void clearProperty() {
+        System.clearProperty(JukitoParallel.PROPERTY);
+        System.clearProperty(JukitoParallel.VIRTUAL_THREADS_PROPERTY);
+    }
+
+    @Test
+    public void testMethodsRunInParallel() throws Exception {
+        Result result = new JUnitCore().run(Request.runner(new JukitoRunner(ParallelTestClass.class)));
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertEquals(4, result.getRunCount());
+        assertEquals(4, ParallelTestClass.SERVICES.size());
+        assertEquals(4, ParallelTestClass.THREADS.size());
+    }
+
+    @Test
+    public void virtualThreadsAreLimited() throws Exception {
+        Result result = new JUnitCore().run(Request.runner(new JukitoRunner(VirtualThreadsTestClass.class)));
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertEquals(4, result.getRunCount());
+        assertEquals(2, VirtualThreadsTestClass.MAX_RUNNING.get());
+    }
+
+    @Test
+    public void combinationsRunInParallelAndReportInOrder() throws Exception {
+        final List<String> events = new ArrayList<String>();
+        JUnitCore core = new JUnitCore();
+        core.addListener(new RunListener() {
+            @Override
+            public void testStarted(Description description) {
+                events.add("started " + description.getMethodName());
+            }
+
+            @Override
+            public void testFailure(Failure failure) {
+                events.add("failed " + failure.getMessage());
+            }
+
+            @Override
+            public void testFinished(Description description) {
+                events.add("finished " + description.getMethodName());
+            }
+        });
+
+        Result result = core.run(Request.runner(new JukitoRunner(ParallelCombinationsTestClass.class)));
+
+        assertEquals(6, result.getRunCount());
+        assertEquals(4, result.getFailureCount());
+        assertEquals(4, ParallelCombinationsTestClass.SERVICES.size());
+        List<String> expected = new ArrayList<String>();
+        expected.add("started a");
+        expected.add("finished a");
+        for (int value = 1; value <= 4; value++) {
+            expected.add("started b");
+            expected.add("failed " + value);
+            expected.add("finished b");
+        }
+        expected.add("started c");
+        expected.add("finished c");
+        assertEquals(expected, events);
+    }
+
+    @Test
+    public void combinationsAreReportedAsSoonAsTheyFinish() throws Exception {
+        JUnitCore core = new JUnitCore();
+        core.addListener(new RunListener() {
+            @Override
+            public void testFinished(Description description) {
+                StreamingCombinationsTestClass.FINISHED.incrementAndGet();
+            }
+        });
+
+        Result result = core.run(Request.runner(new JukitoRunner(StreamingCombinationsTestClass.class)));
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertEquals(3, result.getRunCount());
+    }
+
+    @Test
+    public void schedulerWaitsForAllChildrenWhenOneFails() throws Exception {
+        ParallelScheduler scheduler = new ParallelScheduler("failing", 2);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final AtomicInteger finished = new AtomicInteger();
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("first");
+            }
+        });
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                    finished.incrementAndGet();
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+            }
+        });
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("second");
+            }
+        });
+
+        try {
+            scheduler.finished();
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof MultipleFailureException);
+            assertEquals(2, ((MultipleFailureException) e.getCause()).getFailures().size());
+        }
+        assertFalse(interrupted.get());
+        assertEquals(1, finished.get());
+    }
+
+    @Test
+    public void missingVirtualThreadsAreReported() throws Exception {
+        Assume.assumeFalse(hasVirtualThreads());
+        final List<String> warnings = new ArrayList<String>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel() == Level.WARNING) {
+                    warnings.add(record.getMessage());
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(ParallelScheduler.class.getName());
+        logger.addHandler(handler);
+        try {
+            ParallelScheduler scheduler = new ParallelScheduler("virtual", 0, true);
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            scheduler.finished();
+        } finally {
+            logger.removeHandler(handler);
+        }
+
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0), warnings.get(0).contains("virtual"));
+    }
+
+    @Test
+    public void testMethodWithoutAnnotationHasNoScheduler() throws Exception {
+        assertNull(ParallelScheduler.forTestMethod(ParallelCombinationsTestClass.class.getMethod("a")));
+    }
+
+    @Test
+    public void propertyEnablesVirtualThreads() {
+        System.setProperty(JukitoParallel.VIRTUAL_THREADS_PROPERTY, "true");
+
+        assertTrue(ParallelScheduler.useVirtualThreads(SequentialTestClass.class));
+        assertFalse(ParallelScheduler.useVirtualThreads(ParallelTestClass.class));
+    }
+
+    @Test
+    public void annotationGivesThreads() {
+        assertEquals(4, ParallelScheduler.getThreads(ParallelTestClass.class));
+    }
+
+    @Test
+    public void propertyGivesThreads() {
+        System.setProperty(JukitoParallel.PROPERTY, "3");
+
+        assertEquals(3, ParallelScheduler.getThreads(SequentialTestClass.class));
+    }
+
+    @Test
+    public void blankPropertyRunsSequentially() {
+        System.setProperty(JukitoParallel.PROPERTY, " ");
+
+        assertEquals(1, ParallelScheduler.getThreads(SequentialTestClass.class));
+        assertNull(ParallelScheduler.forTestClass(SequentialTestClass.class));
+    }
+
+    @Test
+    public void zeroThreadsUsesAvailableProcessors() {
+        System.setProperty(JukitoParallel.PROPERTY, "0");
+
+        assertEquals(Runtime.getRuntime().availableProcessors(),
+                ParallelScheduler.getThreads(SequentialTestClass.class));
+    }
+
+    @Test
+    public void testMethodsRunSequentiallyByDefault() {
+        assertEquals(1, ParallelScheduler.getThreads(SequentialTestClass.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPropertyIsRejected() {
+        System.setProperty(JukitoParallel.PROPERTY, "many");
+
+        ParallelScheduler.getThreads(SequentialTestClass.class);
+    }
+
+    private static boolean hasVirtualThreads() {
+        try {
+            ((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null)).shutdown();
+            return true;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.mockito.Mockito;
+
+import com.google.inject.Inject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test that mocks of interfaces are only created when first used when lazy mocks are enabled.
+ */
+public class LazyMockTest {
+
+    interface Service {
+        String name();
+    }
+
+    interface UnusedService {
+        String name();
+    }
+
+    static class Concrete {
+    }
+
+    public static class LazyTestClass {
+        @Inject
+        UnusedService unusedService;
+
+        @Test
+        public void placeholdersBehaveLikeMocks(Service service, Concrete concrete) {
+            assertTrue(Proxy.isProxyClass(service.getClass()));
+            assertFalse(LazyMock.isMaterialized(service));
+            assertFalse(Proxy.isProxyClass(concrete.getClass()));
+
+            when(service.name()).thenReturn("stubbed");
+            assertEquals("stubbed", service.name());
+            verify(service).name();
+
+            Mockito.reset(service);
+            assertNull(service.name());
+
+            doReturn("stubbed again").when(service).name();
+            assertEquals("stubbed again", service.name());
+            assertTrue(LazyMock.isMaterialized(service));
+        }
+
+        @Test
+        public void untouchedPlaceholdersAreNotMaterialized() {
+            assertTrue(Proxy.isProxyClass(unusedService.getClass()));
+            assertFalse(LazyMock.isMaterialized(unusedService));
+        }
+
+        @Test
+        public void verifyMaterializesPlaceholders(Service service) {
+            verify(service, never()).name();
+            assertTrue(LazyMock.isMaterialized(service));
+        }
+    }
+
+    public static class EagerTestClass {
+        @Test
+        public void mocksAreCreatedEagerly(Service service) {
+            assertFalse(Proxy.isProxyClass(service.getClass()));
+            assertTrue(Mockito.mockingDetails(service).isMock());
+        }
+    }
+
+    @Before
+    public void enableLazyMocks() {
+        System.setProperty(LazyMock.PROPERTY, "true");
+    }
+
+    @After
+    public void disableLazyMocks() {
+        System.clearProperty(LazyMock.PROPERTY);
+    }
+
+    @Test
+    public void mocksAreCreatedLazily() throws Exception {
+        Result result = new JUnitCore().run(Request.runner(new JukitoRunner(LazyTestClass.class)));
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertEquals(3, result.getRunCount());
+    }
+
+    @Test
+    public void mocksAreCreatedEagerlyWhenDisabled() throws Exception {
+        System.clearProperty(LazyMock.PROPERTY);
+
+        Result result = new JUnitCore().run(Request.runner(new JukitoRunner(EagerTestClass.class)));
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+
+import com.google.inject.AbstractModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that the injector of a method annotated with {@link UseModules} is created once
+ * and that test-scoped objects are still reset between invocations.
+ */
+public class MethodInjectorsTest {
+
+    interface Service {
+    }
+
+    static class ServiceImpl implements Service {
+    }
+
+    static class CountingModule extends AbstractModule {
+        static int configureCount;
+
+        @Override
+        protected void configure() {
+            configureCount++;
+            bind(Service.class).to(ServiceImpl.class).in(TestSingleton.class);
+        }
+    }
+
+    public static class MethodModulesTestClass {
+        static Set<Service> servicesSeen = new HashSet<Service>();
+
+        @Test
+        @UseModules(CountingModule.class)
+        public void test(Service service) {
+            servicesSeen.add(service);
+        }
+    }
+
+    @Test
+    public void methodInjectorIsCreatedOnce() throws Exception {
+        CountingModule.configureCount = 0;
+
+        JukitoRunner runner = new JukitoRunner(MethodModulesTestClass.class);
+
+        Result firstResult = new JUnitCore().run(Request.runner(runner));
+        Result secondResult = new JUnitCore().run(Request.runner(runner));
+
+        assertTrue(firstResult.wasSuccessful());
+        assertTrue(secondResult.wasSuccessful());
+        assertEquals(1, CountingModule.configureCount);
+        assertEquals(2, MethodModulesTestClass.servicesSeen.size());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that the classes of the mocks bound by an injector are submitted for generation when
+ * pre-generation is enabled.
+ */
+public class MockPregeneratorTest {
+
+    interface AutoBoundService {
+    }
+
+    interface BoundMockService {
+    }
+
+    interface IgnoredService {
+    }
+
+    public static class PregeneratedTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bindMock(BoundMockService.class);
+            }
+        }
+
+        @Test
+        public void test(AutoBoundService service) {
+        }
+    }
+
+    public static class NotPregeneratedTestClass {
+        @Test
+        public void test(IgnoredService service) {
+        }
+    }
+
+    private String property;
+
+    @Before
+    public void saveProperty() {
+        property = System.getProperty(MockPregenerator.PROPERTY);
+    }
+
+    @After
+    public void restoreProperty() {
+        if (property == null) {
+            System.clearProperty(MockPregenerator.PROPERTY);
+        } else {
+            System.setProperty(MockPregenerator.PROPERTY, property);
+        }
+    }
+
+    @Test
+    public void mockTypesAreSubmitted() throws Exception {
+        System.setProperty(MockPregenerator.PROPERTY, "true");
+
+        new JukitoRunner(PregeneratedTestClass.class);
+
+        assertTrue(MockPregenerator.isSubmitted(AutoBoundService.class));
+        assertTrue(MockPregenerator.isSubmitted(BoundMockService.class));
+    }
+
+    @Test
+    public void mockTypesAreNotSubmittedWhenDisabled() throws Exception {
+        System.setProperty(MockPregenerator.PROPERTY, "false");
+
+        new JukitoRunner(NotPregeneratedTestClass.class);
+
+        assertFalse(MockPregenerator.isSubmitted(IgnoredService.class));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.exceptions.misusing.CannotVerifyStubOnlyMock;
+
+import com.google.inject.AbstractModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test that the automatically bound mocks are created with the {@link MockProfile} of the test.
+ */
+@RunWith(JukitoRunner.class)
+public class MockProfileTest {
+
+    interface Service {
+        String name();
+    }
+
+    interface VerifiedService {
+        void call();
+    }
+
+    static class Module extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            bindMock(VerifiedService.class);
+        }
+
+        @Override
+        protected MockProfile getMockProfile() {
+            return MockProfile.STUB_ONLY;
+        }
+    }
+
+    static class EmptyModule extends AbstractModule {
+        @Override
+        protected void configure() {
+        }
+    }
+
+    @UseModules(value = EmptyModule.class, mockProfile = MockProfile.STUB_ONLY)
+    public static class UseModulesTestClass {
+        static final List<Service> SERVICES = new ArrayList<Service>();
+
+        @Test
+        public void stubOnly(Service service) {
+            SERVICES.add(service);
+        }
+    }
+
+    @Test
+    public void autoBoundMocksAreStubOnly(Service service) {
+        when(service.name()).thenReturn("stubbed");
+
+        assertEquals("stubbed", service.name());
+        assertTrue(Mockito.mockingDetails(service).getMockCreationSettings().isStubOnly());
+    }
+
+    @Test(expected = CannotVerifyStubOnlyMock.class)
+    public void verifyingStubOnlyMockFails(Service service) {
+        service.name();
+
+        verify(service).name();
+    }
+
+    @Test
+    public void explicitMocksUseDefaultProfile(VerifiedService service) {
+        service.call();
+
+        verify(service).call();
+    }
+
+    @Test
+    public void useModulesSetsProfile() throws Exception {
+        UseModulesTestClass.SERVICES.clear();
+        System.setProperty(MockPool.PROPERTY, "true");
+        try {
+            Result result = new JUnitCore().run(Request.runner(new JukitoRunner(UseModulesTestClass.class)));
+
+            assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        } finally {
+            System.clearProperty(MockPool.PROPERTY);
+        }
+        assertEquals(1, UseModulesTestClass.SERVICES.size());
+        assertTrue(Mockito.mockingDetails(UseModulesTestClass.SERVICES.get(0))
+                .getMockCreationSettings().isStubOnly());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runners.MethodSorters;
+import org.mockito.Mockito;
+
+import com.google.inject.Singleton;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test that mocks are recycled between tests when the {@link MockPool} is enabled.
+ */
+public class MockRecyclingTest {
+
+    interface Service {
+        String name();
+    }
+
+    interface LongLivedService {
+        String name();
+    }
+
+    interface OtherService {
+        String name();
+    }
+
+    @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+    public static class RecyclingTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bindMock(LongLivedService.class).in(Singleton.class);
+            }
+        }
+
+        static final List<Service> SERVICES = new ArrayList<Service>();
+        static final List<LongLivedService> LONG_LIVED_SERVICES = new ArrayList<LongLivedService>();
+
+        @Test
+        public void first(Service service, LongLivedService longLivedService) {
+            SERVICES.add(service);
+            LONG_LIVED_SERVICES.add(longLivedService);
+            when(service.name()).thenReturn("stubbed");
+            when(longLivedService.name()).thenReturn("stubbed");
+        }
+
+        @Test
+        public void second(Service service, LongLivedService longLivedService) {
+            SERVICES.add(service);
+            LONG_LIVED_SERVICES.add(longLivedService);
+            verifyNoInteractions(service);
+            assertEquals(null, service.name());
+            assertEquals("stubbed", longLivedService.name());
+        }
+    }
+
+    @Before
+    public void enableRecycling() {
+        System.setProperty(MockPool.PROPERTY, "true");
+        RecyclingTestClass.SERVICES.clear();
+        RecyclingTestClass.LONG_LIVED_SERVICES.clear();
+    }
+
+    @After
+    public void disableRecycling() {
+        System.clearProperty(MockPool.PROPERTY);
+    }
+
+    @Test
+    public void mocksAreResetAndReused() throws Exception {
+        Result result = new JUnitCore().run(Request.runner(new JukitoRunner(RecyclingTestClass.class)));
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertSame(RecyclingTestClass.SERVICES.get(0), RecyclingTestClass.SERVICES.get(1));
+        assertSame(RecyclingTestClass.LONG_LIVED_SERVICES.get(0), RecyclingTestClass.LONG_LIVED_SERVICES.get(1));
+    }
+
+    @Test
+    public void mocksAreReusedByOtherThreads() throws Exception {
+        TestScope.Context context = new TestScope.Context();
+        TestScope.Context previous = TestScope.enterContext(context);
+        final OtherService mock;
+        try {
+            mock = MockPool.acquire(OtherService.class, MockProfile.DEFAULT);
+        } finally {
+            TestScope.exitContext(previous);
+        }
+        MockPool.release(context);
+
+        final List<OtherService> acquired = new ArrayList<OtherService>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                TestScope.Context threadContext = new TestScope.Context();
+                TestScope.enterContext(threadContext);
+                acquired.add(MockPool.acquire(OtherService.class, MockProfile.DEFAULT));
+                MockPool.release(threadContext);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertSame(mock, acquired.get(0));
+    }
+
+    @Test
+    public void mocksAreNotReusedWhenDisabled() throws Exception {
+        System.clearProperty(MockPool.PROPERTY);
+
+        new JUnitCore().run(Request.runner(new JukitoRunner(RecyclingTestClass.class)));
+
+        assertNotSame(RecyclingTestClass.SERVICES.get(0), RecyclingTestClass.SERVICES.get(1));
+        assertTrue(Mockito.mockingDetails(RecyclingTestClass.SERVICES.get(1)).isMock());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that the {@link MockTypesManifest} lists the types mocked for test classes.
+ */
+public class MockTypesManifestTest {
+
+    interface AutoBoundService {
+    }
+
+    interface BoundMockService {
+    }
+
+    @RunWith(JukitoRunner.class)
+    public static class ListedTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bindMock(BoundMockService.class);
+            }
+        }
+
+        @Test
+        public void test(AutoBoundService service) {
+        }
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void mockedTypesAreFound() {
+        Set<String> mockedTypes = MockTypesManifest.findMockedTypes(
+                Collections.<Class<?>>singletonList(ListedTestClass.class));
+
+        assertTrue(mockedTypes.contains(AutoBoundService.class.getName()));
+        assertTrue(mockedTypes.contains(BoundMockService.class.getName()));
+    }
+
+    @Test
+    public void manifestIsReadBack() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        Set<String> mockedTypes = MockTypesManifest.findMockedTypes(
+                Arrays.<Class<?>>asList(ListedTestClass.class));
+
+        MockTypesManifest.write(mockedTypes, new File(directory, MockTypesManifest.MANIFEST));
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toURI().toURL()}, null);
+        try {
+            assertEquals(mockedTypes, MockTypesManifest.read(classLoader));
+        } finally {
+            classLoader.close();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.inject.Binding;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that the keys of the bindings of {@link TestModule#bindMany} and
+ * {@link TestModule#bindManyInstances} only depend on the module that declares them.
+ */
+public class NamedUniqueAnnotationsTest {
+
+    static class FirstModule extends TestModule {
+        @Override
+        protected void configureTest() {
+            bindManyInstances(String.class, "A", "B");
+            bindManyNamedInstances(String.class, "named", "C");
+            bindManyInstances(Integer.class, 1, 2);
+        }
+    }
+
+    static class SecondModule extends TestModule {
+        @Override
+        protected void configureTest() {
+            bindManyInstances(String.class, "D");
+        }
+    }
+
+    static class ValuesModule extends TestModule {
+        private final String[] values;
+
+        ValuesModule(String... values) {
+            this.values = values;
+        }
+
+        @Override
+        protected void configureTest() {
+            bindManyInstances(String.class, values);
+        }
+    }
+
+    static class TwoValuesModules extends TestModule {
+        @Override
+        protected void configureTest() {
+            install(new ValuesModule("A", "B"));
+            install(new ValuesModule("C"));
+        }
+    }
+
+    @Test
+    public void instancesOfTheSameModuleDoNotShareKeys() {
+        TwoValuesModules module = new TwoValuesModules();
+        List<Key<?>> keys = getStringKeys(Guice.createInjector(module));
+
+        assertEquals(3, keys.size());
+        assertEquals(keys, getStringKeys(Guice.createInjector(module)));
+    }
+
+    @Test
+    public void instancesOfTheSameModuleDoNotShareKeysInAJukitoModule() {
+        Injector injector = Guice.createInjector(new JukitoModule() {
+            @Override
+            protected void configureTest() {
+                install(new ValuesModule("A", "B"));
+                install(new ValuesModule("C"));
+            }
+        });
+
+        assertEquals(3, getStringKeys(injector).size());
+    }
+
+    @Test
+    public void keysAreTheSameInEveryInjector() {
+        // Configure other modules first, they must not change the keys
+        Guice.createInjector(new SecondModule());
+
+        assertEquals(getStringKeys(Guice.createInjector(new FirstModule())),
+                getStringKeys(Guice.createInjector(new FirstModule())));
+    }
+
+    @Test
+    public void keysAreTheSameWhenTheModuleIsConfiguredAgain() {
+        FirstModule module = new FirstModule();
+
+        assertEquals(getStringKeys(Guice.createInjector(module)), getStringKeys(Guice.createInjector(module)));
+    }
+
+    @Test
+    public void keysDependOnTheModuleNameAndPosition() {
+        List<String> keys = new ArrayList<String>();
+        for (Key<?> key : getStringKeys(Guice.createInjector(new FirstModule()))) {
+            keys.add(key.getAnnotation().toString());
+        }
+
+        String prefix = "(module=" + FirstModule.class.getName() + ", name=";
+        assertEquals(3, keys.size());
+        assertTrue(keys.get(0), keys.get(0).endsWith(prefix + All.DEFAULT + ", value=0)"));
+        assertTrue(keys.get(1), keys.get(1).endsWith(prefix + All.DEFAULT + ", value=1)"));
+        assertTrue(keys.get(2), keys.get(2).endsWith(prefix + "named, value=0)"));
+    }
+
+    @Test
+    public void modulesDoNotShareKeys() {
+        List<Key<?>> keys = getStringKeys(Guice.createInjector(new FirstModule(), new SecondModule()));
+
+        assertEquals(4, keys.size());
+        assertFalse(keys.get(0).equals(keys.get(3)));
+    }
+
+    private static List<Key<?>> getStringKeys(Injector injector) {
+        List<Key<?>> keys = new ArrayList<Key<?>>();
+        for (Binding<String> binding : injector.findBindingsByType(TypeLiteral.get(String.class))) {
+            keys.add(binding.getKey());
+        }
+        return keys;
+    }
+}
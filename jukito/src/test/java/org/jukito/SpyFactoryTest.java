@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test that the {@link SpyFactory} copies the state of the spied instances.
+ */
+public class SpyFactoryTest {
+
+    static class Base {
+        private final int id;
+
+        Base(int id) {
+            this.id = id;
+        }
+
+        int getId() {
+            return id;
+        }
+    }
+
+    static class Named extends Base {
+        private final String name;
+        private final List<String> tags = new ArrayList<String>();
+
+        Named(int id, String name) {
+            super(id);
+            this.name = name;
+        }
+
+        String describe() {
+            return getId() + ":" + name + tags;
+        }
+    }
+
+    @Test
+    public void spyCopiesOwnAndInheritedFields() {
+        Named named = new Named(42, "answer");
+        named.tags.add("tag");
+
+        Named spy = SpyFactory.spy(named);
+
+        assertNotSame(named, spy);
+        assertTrue(Mockito.mockingDetails(spy).isSpy());
+        assertEquals("42:answer[tag]", spy.describe());
+        verify(spy).describe();
+    }
+
+    @Test
+    public void spiesOfSameTypeAreIndependent() {
+        Named first = SpyFactory.spy(new Named(1, "first"));
+        Named second = SpyFactory.spy(new Named(2, "second"));
+
+        assertEquals("1:first[]", first.describe());
+        assertEquals("2:second[]", second.describe());
+    }
+
+    @Test
+    public void spyOfJdkClassFallsBackToMockito() {
+        List<String> list = new ArrayList<String>();
+
+        List<String> spy = SpyFactory.spy(list);
+
+        assertTrue(Mockito.mockingDetails(spy).isSpy());
+        assertTrue(spy.isEmpty());
+    }
+}
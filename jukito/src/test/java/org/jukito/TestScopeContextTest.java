@@ -0,0 +1,287 @@
+/**
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runners.MethodSorters;
+
+import com.google.inject.Inject;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that the instances of test-scoped singletons are kept in a context bound to
+ * the thread running the test, to the threads it starts and to the threads the runner
+ * hands the test to.
+ */
+public class TestScopeContextTest {
+
+    static class Instance {
+    }
+
+    @TestSingleton
+    static class Singleton {
+    }
+
+    public static class TimeoutTestClass {
+        @Inject
+        Singleton singleton;
+
+        Singleton singletonBefore;
+
+        @Before
+        public void before(Singleton parameter) {
+            singletonBefore = parameter;
+        }
+
+        @Test(timeout = 10000)
+        public void testWithTimeout(Singleton parameter) {
+            assertSame(singleton, parameter);
+            assertSame(singleton, singletonBefore);
+        }
+    }
+
+    public static class TimeoutRuleTestClass {
+        @Rule
+        public Timeout timeout = Timeout.seconds(10);
+
+        @Inject
+        Singleton singleton;
+
+        Singleton singletonBefore;
+
+        @Before
+        public void before(Singleton parameter) {
+            singletonBefore = parameter;
+        }
+
+        @Test
+        public void testWithTimeoutRule(Singleton parameter) {
+            assertSame(singleton, parameter);
+            assertSame(singleton, singletonBefore);
+        }
+    }
+
+    @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+    public static class OtherThreadsTestClass {
+        // Its thread is started by the first test, and kept for the second one
+        static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        @Inject
+        Singleton singleton;
+
+        @Inject
+        Provider<Singleton> singletonProvider;
+
+        @Test
+        public void first() throws Exception {
+            assertSameInOtherThreads();
+        }
+
+        @Test
+        public void second() throws Exception {
+            assertSameInOtherThreads();
+        }
+
+        private void assertSameInOtherThreads() throws Exception {
+            final AtomicReference<Singleton> spawned = new AtomicReference<Singleton>();
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    spawned.set(singletonProvider.get());
+                }
+            });
+            thread.start();
+            thread.join();
+            Singleton executed = EXECUTOR.submit(new Callable<Singleton>() {
+                @Override
+                public Singleton call() {
+                    return singletonProvider.get();
+                }
+            }).get();
+
+            assertSame(singleton, spawned.get());
+            assertSame(singleton, executed);
+        }
+    }
+
+    private final Scope scope = TestScope.SINGLETON;
+    private final Provider<Instance> provider = scope.scope(Key.get(Instance.class),
+            new Provider<Instance>() {
+                @Override
+                public Instance get() {
+                    return new Instance();
+                }
+            });
+
+    private TestScope.Context previous;
+
+    @Before
+    public void enterContext() {
+        previous = TestScope.enterContext();
+    }
+
+    @After
+    public void exitContext() {
+        TestScope.exitContext(previous);
+    }
+
+    @Test
+    public void sameContextGetsSameInstance() {
+        assertSame(provider.get(), provider.get());
+    }
+
+    @Test
+    public void newContextGetsNewInstance() {
+        Instance instance = provider.get();
+
+        TestScope.Context outer = TestScope.enterContext();
+        try {
+            assertNotSame(instance, provider.get());
+        } finally {
+            TestScope.exitContext(outer);
+        }
+        assertSame(instance, provider.get());
+    }
+
+    @Test
+    public void startedThreadInheritsContext() throws Exception {
+        Instance instance = provider.get();
+
+        assertSame(instance, getInThread(null));
+    }
+
+    @Test
+    public void threadDoesNotKeepReleasedContext() throws Exception {
+        Instance instance = provider.get();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Instance> result = new AtomicReference<Instance>();
+        // Started in the first context, and used once it is released
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                result.set(provider.get());
+            }
+        });
+        thread.start();
+        TestScope.getContext().release();
+
+        TestScope.Context outer = TestScope.enterContext();
+        try {
+            latch.countDown();
+            thread.join();
+            assertNotSame(instance, result.get());
+            assertSame(provider.get(), result.get());
+        } finally {
+            TestScope.exitContext(outer);
+        }
+    }
+
+    @Test
+    public void threadEnteringContextSharesIt() throws Exception {
+        Instance instance = provider.get();
+
+        assertSame(instance, getInThread(TestScope.getContext()));
+    }
+
+    @Test
+    public void testWithTimeoutSharesContext() throws Exception {
+        Result result = new JUnitCore().run(Request.runner(new JukitoRunner(TimeoutTestClass.class)));
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+    }
+
+    @Test
+    public void testWithTimeoutRuleSharesContext() throws Exception {
+        Result result = new JUnitCore().run(Request.runner(new JukitoRunner(TimeoutRuleTestClass.class)));
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+    }
+
+    @Test
+    public void otherThreadsOfTheTestShareContext() throws Exception {
+        Result result = new JUnitCore().run(Request.runner(new JukitoRunner(OtherThreadsTestClass.class)));
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertEquals(2, result.getRunCount());
+    }
+
+    @Test
+    public void otherContextsAreNotCleared() throws Exception {
+        Instance instance = provider.get();
+
+        TestScope.Context outer = TestScope.enterContext();
+        try {
+            TestScope.clear();
+        } finally {
+            TestScope.exitContext(outer);
+        }
+        assertSame(instance, provider.get());
+
+        TestScope.clear();
+        assertNotSame(instance, provider.get());
+    }
+
+    private Instance getInThread(final TestScope.Context context) throws InterruptedException {
+        final AtomicReference<Instance> result = new AtomicReference<Instance>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (context != null) {
+                    TestScope.enterContext(context);
+                }
+                result.set(provider.get());
+            }
+        });
+        thread.start();
+        thread.join();
+        return result.get();
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.jukito;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runners.model.FrameworkMethod;
+
+import com.google.inject.Guice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that a {@link TestShard} splits the tests and their combinations of {@literal @}{@link All}
+ * bindings deterministically.
+ */
+public class TestShardTest {
+
+    public static class ShardedTestClass {
+        static class Module extends JukitoModule {
+            @Override
+            protected void configureTest() {
+                bindManyInstances(String.class, "A", "B", "C", "D");
+                bindManyInstances(Integer.class, 1, 2, 3, 4, 5);
+            }
+        }
+
+        @Test
+        public void combinations(@All String string, @All Integer integer) {
+        }
+
+        @Test
+        public void single() {
+        }
+    }
+
+    public static class SingleTestClass {
+        @Test
+        public void single() {
+        }
+    }
+
+    private final AllBindingsIndex allBindings =
+            new AllBindingsIndex(Guice.createInjector(new ShardedTestClass.Module()));
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(TestShard.INDEX_PROPERTY);
+        System.clearProperty(TestShard.COUNT_PROPERTY);
+    }
+
+    @Test
+    public void shardsRunEveryCombinationOnce() throws Exception {
+        List<FrameworkMethod> methods = getTestMethods();
+        List<FrameworkMethod> all = AllCombinations.expand(methods, allBindings, null);
+        Set<String> union = new HashSet<String>();
+        int total = 0;
+        for (int index = 0; index < 3; index++) {
+            List<FrameworkMethod> shard = AllCombinations.expand(methods, allBindings, new TestShard(index, 3));
+            assertTrue(shard.size() < all.size());
+            for (FrameworkMethod method : shard) {
+                union.add(describe(method));
+            }
+            total += shard.size();
+        }
+
+        assertEquals(21, all.size());
+        assertEquals(all.size(), total);
+        assertEquals(all.size(), union.size());
+    }
+
+    @Test
+    public void shardsKeepTheOrderOfTheCombinations() throws Exception {
+        List<FrameworkMethod> methods = getTestMethods();
+        List<String> all = new ArrayList<String>();
+        for (FrameworkMethod method : AllCombinations.expand(methods, allBindings, null)) {
+            all.add(describe(method));
+        }
+
+        int previous = -1;
+        for (FrameworkMethod method : AllCombinations.expand(methods, allBindings, new TestShard(1, 2))) {
+            int position = all.indexOf(describe(method));
+            assertTrue(position > previous);
+            previous = position;
+        }
+    }
+
+    @Test
+    public void shardsOfALargeProductHaveSimilarSizes() throws Exception {
+        Method method = ShardedTestClass.class.getMethod("combinations", String.class, Integer.class);
+        for (int count : new int[]{16, 31, 32}) {
+            int[] sizes = new int[count];
+            for (int first = 0; first < 200; first++) {
+                for (int second = 0; second < 100; second++) {
+                    int[] indices = {first, second};
+                    for (int index = 0; index < count; index++) {
+                        if (new TestShard(index, count).contains(method, indices)) {
+                            sizes[index]++;
+                        }
+                    }
+                }
+            }
+
+            // 20,000 combinations, within 20% of the mean size
+            int mean = 20000 / count;
+            for (int size : sizes) {
+                assertTrue(count + " shards: " + Arrays.toString(sizes), Math.abs(size - mean) < mean / 5);
+            }
+        }
+    }
+
+    @Test
+    public void identityOnlyDependsOnTheMethodAndThePositions() throws Exception {
+        assertEquals("org.jukito.TestShardTest$ShardedTestClass#combinations(java.lang.String,java.lang.Integer)[2][0]",
+                TestShard.getIdentity(ShardedTestClass.class.getMethod("combinations", String.class, Integer.class),
+                        new int[]{2, 0}));
+    }
+
+    @Test
+    public void runnerRunsItsShardOnly() throws Exception {
+        int total = 0;
+        for (int index = 0; index < 4; index++) {
+            System.setProperty(TestShard.INDEX_PROPERTY, String.valueOf(index));
+            System.setProperty(TestShard.COUNT_PROPERTY, "4");
+
+            Result result = new JUnitCore().run(Request.runner(new JukitoRunner(ShardedTestClass.class)));
+
+            assertTrue(result.getFailures().toString(), result.wasSuccessful());
+            total += result.getRunCount();
+        }
+
+        assertEquals(21, total);
+    }
+
+    @Test
+    public void emptyShardIsNotAnError() throws Exception {
+        System.setProperty(TestShard.COUNT_PROPERTY, "2");
+        int total = 0;
+        for (int index = 0; index < 2; index++) {
+            System.setProperty(TestShard.INDEX_PROPERTY, String.valueOf(index));
+
+            Result result = new JUnitCore().run(Request.runner(new JukitoRunner(SingleTestClass.class)));
+
+            assertTrue(result.getFailures().toString(), result.wasSuccessful());
+            total += result.getRunCount();
+        }
+
+        assertEquals(1, total);
+    }
+
+    @Test
+    public void noPropertiesMeansNoShard() {
+        assertNull(TestShard.fromProperties());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexAloneIsRejected() {
+        System.setProperty(TestShard.INDEX_PROPERTY, "0");
+
+        TestShard.fromProperties();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexOutOfTheShardsIsRejected() {
+        System.setProperty(TestShard.INDEX_PROPERTY, "2");
+        System.setProperty(TestShard.COUNT_PROPERTY, "2");
+
+        TestShard.fromProperties();
+    }
+
+    private List<FrameworkMethod> getTestMethods() throws Exception {
+        List<FrameworkMethod> methods = new ArrayList<FrameworkMethod>();
+        methods.add(new FrameworkMethod(ShardedTestClass.class.getMethod("combinations", String.class,
+                Integer.class)));
+        methods.add(new FrameworkMethod(ShardedTestClass.class.getMethod("single")));
+        return methods;
+    }
+
+    private static String describe(FrameworkMethod method) {
+        InjectedFrameworkMethod injected = (InjectedFrameworkMethod) method;
+        return method.getName() + injected.getBindingsToUseForParameters();
+    }
+}